@@ -0,0 +1,60 @@
+package com.yang.video.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * ffmpeg任务资源调度配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "video.ffmpeg.governor")
+public class FFmpegGovernorProperties {
+    /**
+     * 是否启用调度，关闭后ffmpeg不做并发和线程限制
+     */
+    private boolean enabled = true;
+
+    /**
+     * 每个任务的初始线程数，0表示从1开始
+     */
+    private int threadsPerJob = 0;
+
+    /**
+     * 最大并发任务数，0表示按 CPU核数 / 每任务线程数 计算
+     */
+    private int maxJobs = 0;
+
+    /**
+     * 是否根据实测的 CPU效率 自动调整每任务线程数
+     */
+    private boolean adaptive = true;
+
+    /**
+     * 每完成多少个任务评估一次线程数
+     */
+    private int tuneWindow = 20;
+
+    /**
+     * 任务排队等待的最长时间，超时返回503
+     */
+    private Duration queueTimeout = Duration.ofSeconds(30);
+
+    /**
+     * ffmpeg进程的nice值，0表示不调整
+     */
+    private int nice = 0;
+
+    /**
+     * 是否将每个任务绑定到独占的CPU核上（依赖taskset）
+     */
+    private boolean cpuAffinity = false;
+
+    /**
+     * 单个任务的内存上限（如 512M），为空表示不限制（依赖systemd-run和用户级systemd会话，启动检查不通过时不生效）
+     */
+    private String memoryMax = "";
+}
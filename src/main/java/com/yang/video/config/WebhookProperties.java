@@ -0,0 +1,66 @@
+package com.yang.video.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.time.Duration;
+
+/**
+ * 完成回调（Webhook）投递配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "video.webhook")
+public class WebhookProperties {
+    /**
+     * HMAC-SHA256 签名密钥，为空时不签名
+     */
+    private String secret = "";
+
+    /**
+     * 待投递事件队列容量，队列满时事件直接转入死信
+     */
+    private int queueCapacity = 1000;
+
+    /**
+     * 同一回调地址单次投递的最大事件数
+     */
+    private int batchSize = 20;
+
+    /**
+     * 同一回调地址的事件最多等待多久后合并投递
+     */
+    private Duration batchDelay = Duration.ofMillis(500);
+
+    /**
+     * 最大投递次数（含首次），超过后转入死信
+     */
+    private int maxAttempts = 5;
+
+    /**
+     * 首次重试的等待时间，之后每次翻倍
+     */
+    private Duration initialBackoff = Duration.ofSeconds(1);
+
+    /**
+     * 重试等待时间上限
+     */
+    private Duration maxBackoff = Duration.ofMinutes(1);
+
+    /**
+     * 单次请求超时时间
+     */
+    private Duration timeout = Duration.ofSeconds(5);
+
+    /**
+     * 是否允许回调到回环、链路本地和内网地址，默认禁止以防止服务端请求伪造（SSRF），仅用于本地调试
+     */
+    private boolean allowPrivateNetworks = false;
+
+    /**
+     * 死信存储目录
+     */
+    private String deadLetterDirectory = System.getProperty("user.dir") + File.separator + "dead-letters";
+}
@@ -1,9 +1,16 @@
 package com.yang.video.controller;
 
+import cn.hutool.core.text.CharSequenceUtil;
+import cn.hutool.core.text.StrPool;
+import com.yang.video.dto.ClipResponse;
+import com.yang.video.dto.FileMetadata;
 import com.yang.video.dto.Response;
+import com.yang.video.dto.TimeRange;
 import com.yang.video.dto.UploadResponse;
+import com.yang.video.service.FileIndexService;
 import com.yang.video.service.VideoService;
 import com.yang.video.util.FileNameValidator;
+import com.yang.video.util.waveform.WaveformUtils;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -12,8 +19,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -21,12 +27,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
-import java.net.MalformedURLException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.List;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -37,20 +40,28 @@ public class VideoController {
 
     private final VideoService videoService;
 
-    private static final String FILE_DIRECTORY = System.getProperty("user.dir") + File.separator + "uploads";
+    private final FileIndexService fileIndexService;
 
     /**
      * 文件上传
      *
      * @param file 上传的文件
+     * @param callbackUrl 完成回调地址（可选）
+     * @param start 片段起始时间（可选）
+     * @param duration 片段时长（可选）
+     * @param ranges 多个片段的时间范围（可选）
      * @return 标准响应格式
      */
     @PostMapping("/upload")
-    @Operation(summary = "上传视频文件", description = "上传单个视频文件，提取BGM并返回BGM文件信息")
+    @Operation(summary = "上传视频文件", description = "上传单个视频文件，保存后立即返回，BGM在后台提取（状态为 pending）；指定时间范围时只提取对应片段；提取结果可通过状态接口查询，如指定回调地址，提取完成或失败后会以POST方式批量推送事件")
     @ApiResponse(responseCode = "200", description = "上传成功", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Response.class)))
     @ApiResponse(responseCode = "400", description = "文件为空或非法")
     public ResponseEntity<Response<UploadResponse>> upload(
-            @Parameter(description = "要上传的视频文件", required = true) @RequestParam("file") MultipartFile file) {
+            @Parameter(description = "要上传的视频文件", required = true) @RequestParam("file") MultipartFile file,
+            @Parameter(description = "完成回调地址，仅支持 http/https，且不能指向本机或内网地址", example = "https://example.com/hooks/bgm") @RequestParam(value = "callbackUrl", required = false) String callbackUrl,
+            @Parameter(description = "片段起始时间（秒）", example = "30") @RequestParam(value = "start", required = false) Double start,
+            @Parameter(description = "片段时长（秒），为空表示到结尾", example = "30") @RequestParam(value = "duration", required = false) Double duration,
+            @Parameter(description = "多个片段的时间范围，逗号分隔的 起始-结束（秒）", example = "30-60,95.5-125.5") @RequestParam(value = "ranges", required = false) String ranges) {
         log.debug("文件上传开始");
 
         if (file.isEmpty()) {
@@ -58,10 +69,61 @@ public class VideoController {
             return ResponseEntity.badRequest().body(Response.error(400, "文件为空，请选择一个视频文件上传"));
         }
 
-        UploadResponse uploadResponse = videoService.upload(file);
+        UploadResponse uploadResponse = videoService.upload(file, callbackUrl, TimeRange.parse(start, duration, ranges));
 
         log.info("文件上传成功，文件名：{}", uploadResponse.getFilename());
-        return ResponseEntity.ok(Response.success("文件上传成功", uploadResponse));
+        return ResponseEntity.ok(Response.success("文件上传成功，正在提取BGM", uploadResponse));
+    }
+
+    /**
+     * 查询提取状态
+     *
+     * @param filename 上传时返回的文件名（不包含后缀）
+     * @return 提取状态，完成后包含BGM后缀或片段信息
+     */
+    @GetMapping("/status/{filename}")
+    @Operation(summary = "查询提取状态", description = "查询上传后BGM提取的状态（pending/completed/failed），完成后返回BGM后缀或片段信息；未指定回调地址时可轮询此接口")
+    @ApiResponse(responseCode = "200", description = "查询成功", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Response.class)))
+    @ApiResponse(responseCode = "400", description = "文件名不合法")
+    @ApiResponse(responseCode = "404", description = "上传记录不存在")
+    public ResponseEntity<Response<UploadResponse>> status(
+            @Parameter(description = "上传时返回的文件名（不包含后缀）", required = true, example = "2025-09-29_772f9446-a9f9-4508-9f78-aa0e64222d81") @PathVariable String filename) {
+        if (!FileNameValidator.isValidFilename(filename)) {
+            log.warn("Invalid filename: {}", filename);
+            return ResponseEntity.badRequest().body(Response.error(400, "文件名不合法"));
+        }
+
+        return ResponseEntity.ok(Response.success(videoService.uploadStatus(filename)));
+    }
+
+    /**
+     * 从已上传的视频中提取BGM片段
+     *
+     * @param filename 上传时返回的文件名（不包含后缀）
+     * @param start 片段起始时间（可选）
+     * @param duration 片段时长（可选）
+     * @param ranges 多个片段的时间范围（可选）
+     * @return 片段信息，每个片段可通过下载接口单独下载
+     */
+    @PostMapping("/extract/{filename}")
+    @Operation(summary = "提取BGM片段", description = "按时间范围从已上传的视频中提取BGM片段，相同内容和时间范围的片段直接复用缓存")
+    @ApiResponse(responseCode = "200", description = "提取成功", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Response.class)))
+    @ApiResponse(responseCode = "400", description = "文件名或时间范围不合法")
+    @ApiResponse(responseCode = "404", description = "视频不存在")
+    public ResponseEntity<Response<List<ClipResponse>>> extract(
+            @Parameter(description = "上传时返回的文件名（不包含后缀）", required = true, example = "2025-09-29_772f9446-a9f9-4508-9f78-aa0e64222d81") @PathVariable String filename,
+            @Parameter(description = "片段起始时间（秒）", example = "30") @RequestParam(value = "start", required = false) Double start,
+            @Parameter(description = "片段时长（秒），为空表示到结尾", example = "30") @RequestParam(value = "duration", required = false) Double duration,
+            @Parameter(description = "多个片段的时间范围，逗号分隔的 起始-结束（秒）", example = "30-60,95.5-125.5") @RequestParam(value = "ranges", required = false) String ranges) {
+        if (!FileNameValidator.isValidFilename(filename)) {
+            log.warn("Invalid filename: {}", filename);
+            return ResponseEntity.badRequest().body(Response.error(400, "文件名不合法"));
+        }
+
+        List<ClipResponse> clips = videoService.extractClips(filename, TimeRange.parse(start, duration, ranges));
+
+        log.info("片段提取成功，文件名：{}，片段数：{}", filename, clips.size());
+        return ResponseEntity.ok(Response.success("片段提取成功", clips));
     }
 
     /**
@@ -85,46 +147,62 @@ public class VideoController {
             return ResponseEntity.badRequest().body(Response.error(400, "文件名不合法"));
         }
 
-        try {
-            // 从文件名中提取日期
-            String dateStr = FileNameValidator.extractDateFromFilename(filename);
-            Path filePath;
-
-            if (dateStr != null) {
-                // 如果文件名包含日期，则按日期目录结构查找文件
-                // 文件路径：/uploads/2025-09-29/2025-09-29_772f9446-a9f9-4508-9f78-aa0e64222d81.mp3
-                filePath = Paths.get(FILE_DIRECTORY).resolve(dateStr).resolve(filename).normalize();
-                log.debug("File path with date directory: {}", filePath);
-            } else {
-                // 如果文件名不包含日期，则直接在根目录查找（向后兼容）
-                filePath = Paths.get(FILE_DIRECTORY).resolve(filename).normalize();
-                log.debug("File path in root directory: {}", filePath);
-            }
-
-            Resource resource = new UrlResource(filePath.toUri());
-
-            // 检查文件是否存在且可读
-            if (!resource.exists() || !resource.isReadable()) {
-                log.warn("File not found or not readable: {}", filePath);
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Response.error(404, "文件不存在"));
-            }
-
-            // 设置响应头，以指示浏览器下载文件
-            log.info("File found and ready for download: {}", filename);
-            // 处理中文/特殊字符文件名（防止浏览器下载乱码）
-            String encodedFilename = URLEncoder.encode(filename, StandardCharsets.UTF_8)
-                    .replaceAll("\\+", "%20");
-
-            return ResponseEntity.ok()
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .header(HttpHeaders.CONTENT_DISPOSITION,
-                            "attachment; filename=\"" + encodedFilename + "\"; filename*=UTF-8''" + encodedFilename)
-                    .body(resource);
-        } catch (MalformedURLException e) {
-            // 处理URL异常
-            log.warn("Invalid URL: {}", e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Response.error(500, "服务器内部错误"));
+        // 通过内存索引定位文件，不再访问文件系统检查是否存在
+        FileMetadata metadata = fileIndexService.lookup(filename);
+        if (metadata == null) {
+            log.warn("File not found: {}", filename);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Response.error(404, "文件不存在"));
+        }
+
+        // 设置响应头，以指示浏览器下载文件
+        log.info("File found and ready for download: {}", filename);
+        // 处理中文/特殊字符文件名（防止浏览器下载乱码）
+        String encodedFilename = URLEncoder.encode(filename, StandardCharsets.UTF_8)
+                .replaceAll("\\+", "%20");
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(metadata.contentType()))
+                .lastModified(metadata.lastModified())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + encodedFilename + "\"; filename*=UTF-8''" + encodedFilename)
+                .body(new FileSystemResource(metadata.path()));
+    }
+
+    /**
+     * 获取BGM波形摘要
+     * <p>
+     * 摘要为二进制格式，包含多个缩放级别的峰值/RMS数据以及综合响度。客户端可以先读取头部的级别表，
+     * 再通过 Range 请求只下载需要的级别
+     *
+     * @param filename BGM文件名（可不带后缀）
+     * @return 波形摘要文件
+     */
+    @GetMapping("/waveform/{filename}")
+    @Operation(summary = "获取BGM波形摘要", description = "返回BGM的多级峰值/RMS波形及综合响度，支持 Range 请求按缩放级别分段下载")
+    @ApiResponse(responseCode = "200", description = "获取成功", content = @Content(mediaType = "application/octet-stream"))
+    @ApiResponse(responseCode = "206", description = "返回请求的字节范围", content = @Content(mediaType = "application/octet-stream"))
+    @ApiResponse(responseCode = "400", description = "文件名不合法")
+    @ApiResponse(responseCode = "404", description = "波形摘要不存在或尚未生成完成")
+    public ResponseEntity<?> waveform(
+            @Parameter(description = "BGM文件名", required = true, example = "2025-09-29_772f9446-a9f9-4508-9f78-aa0e64222d81.mp3") @PathVariable String filename) {
+        if (!FileNameValidator.isValidFilename(filename)) {
+            log.warn("Invalid filename: {}", filename);
+            return ResponseEntity.badRequest().body(Response.error(400, "文件名不合法"));
+        }
+
+        String summaryFilename = CharSequenceUtil.subBefore(filename, StrPool.DOT, true) + StrPool.DOT + WaveformUtils.EXTENSION;
+        FileMetadata metadata = fileIndexService.lookup(summaryFilename);
+        if (metadata == null) {
+            log.warn("Waveform summary not found: {}", summaryFilename);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Response.error(404, "波形摘要不存在"));
         }
+
+        // 返回 Resource 时由 Spring MVC 处理 Range 请求头，返回 206 部分内容
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .lastModified(metadata.lastModified())
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .body(new FileSystemResource(metadata.path()));
     }
 
 }
@@ -0,0 +1,38 @@
+package com.yang.video.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * BGM片段信息
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClipResponse {
+    /**
+     * 片段文件名（包含后缀），可直接用于下载接口
+     */
+    private String filename;
+
+    /**
+     * 下载接口URL
+     */
+    private String url;
+
+    /**
+     * 起始时间（秒）
+     */
+    private Double start;
+
+    /**
+     * 时长（秒），为空表示到结尾
+     */
+    private Double duration;
+
+    /**
+     * 是否命中已有的缓存片段
+     */
+    private Boolean cached;
+}
@@ -0,0 +1,16 @@
+package com.yang.video.dto;
+
+import java.nio.file.Path;
+
+/**
+ * 上传目录中文件的元数据
+ *
+ * @param filename     文件名
+ * @param path         文件路径
+ * @param size         文件大小（字节）
+ * @param lastModified 最后修改时间（毫秒）
+ * @param contentType  内容类型
+ * @param contentHash  内容哈希（SHA-256 前8字节），尚未计算时为0
+ */
+public record FileMetadata(String filename, Path path, long size, long lastModified, String contentType, long contentHash) {
+}
@@ -0,0 +1,74 @@
+package com.yang.video.dto;
+
+import cn.hutool.core.text.CharSequenceUtil;
+import com.yang.video.exception.ServiceException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BGM片段的时间范围
+ *
+ * @param start    起始时间（秒）
+ * @param duration 时长（秒）
+ */
+public record TimeRange(double start, double duration) {
+
+    /**
+     * 单次请求最多提取的片段数
+     */
+    public static final int MAX_RANGES = 10;
+
+    /**
+     * 解析请求参数中的时间范围
+     * <p>
+     * 可以通过 start/duration 指定单个片段，或通过 ranges 指定多个片段，格式为逗号分隔的 起始-结束（秒），
+     * 例如 {@code 30-60,95.5-125.5}
+     *
+     * @param start    起始时间（秒），可为空
+     * @param duration 时长（秒），可为空，为空时表示到结尾
+     * @param ranges   多个时间范围，可为空
+     * @return 时间范围列表，未指定时为空列表
+     * @throws ServiceException 参数格式不正确时抛出
+     */
+    public static List<TimeRange> parse(Double start, Double duration, String ranges) {
+        List<TimeRange> result = new ArrayList<>();
+        if (start != null || duration != null) {
+            result.add(of(start == null ? 0 : start, duration == null ? Double.POSITIVE_INFINITY : duration));
+        }
+        if (CharSequenceUtil.isNotBlank(ranges)) {
+            for (String range : ranges.split(",")) {
+                String[] bounds = range.trim().split("-");
+                if (bounds.length != 2) {
+                    throw new ServiceException(400, "时间范围格式不正确: " + range);
+                }
+                try {
+                    double from = Double.parseDouble(bounds[0].trim());
+                    double to = Double.parseDouble(bounds[1].trim());
+                    result.add(of(from, to - from));
+                } catch (NumberFormatException e) {
+                    throw new ServiceException(400, "时间范围格式不正确: " + range);
+                }
+            }
+        }
+        if (result.size() > MAX_RANGES) {
+            throw new ServiceException(400, "时间范围最多 " + MAX_RANGES + " 个");
+        }
+        return result;
+    }
+
+    private static TimeRange of(double start, double duration) {
+        if (!(start >= 0) || !(duration > 0) || Double.isInfinite(start)) {
+            throw new ServiceException(400, "时间范围不合法: 起始 " + start + "s，时长 " + duration + "s");
+        }
+        return new TimeRange(start, duration);
+    }
+
+    /**
+     * 用于缓存文件名的范围标识，精确到毫秒，例如 30000-30000，到结尾的片段为 30000-end
+     */
+    public String key() {
+        long startMillis = Math.round(start * 1000);
+        return Double.isInfinite(duration) ? startMillis + "-end" : startMillis + "-" + Math.round(duration * 1000);
+    }
+}
@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 /**
  * 文件上传响应DTO
  */
@@ -11,6 +13,21 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class UploadResponse {
+    /**
+     * 正在提取
+     */
+    public static final String STATUS_PENDING = "pending";
+
+    /**
+     * 提取完成
+     */
+    public static final String STATUS_COMPLETED = "completed";
+
+    /**
+     * 提取失败
+     */
+    public static final String STATUS_FAILED = "failed";
+
     /**
      * 文件名（不包含后缀）
      */
@@ -20,9 +37,29 @@ public class UploadResponse {
      * 下载接口URL
      */
     private String url;
+
+    /**
+     * 波形摘要接口URL
+     */
+    private String waveformUrl;
     
     /**
-     * BGM文件后缀
+     * BGM文件后缀，提取未完成、失败或只提取片段时为空
      */
     private String extension;
+
+    /**
+     * 按时间范围提取的BGM片段，未指定时间范围或提取未完成时为空
+     */
+    private List<ClipResponse> clips;
+
+    /**
+     * 提取状态：pending、completed 或 failed
+     */
+    private String status;
+
+    /**
+     * 状态说明，失败时为失败原因
+     */
+    private String message;
 }
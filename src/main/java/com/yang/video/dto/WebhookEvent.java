@@ -0,0 +1,101 @@
+package com.yang.video.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 完成回调事件
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WebhookEvent {
+    /**
+     * BGM提取完成
+     */
+    public static final String BGM_COMPLETED = "bgm.completed";
+
+    /**
+     * BGM提取失败
+     */
+    public static final String BGM_FAILED = "bgm.failed";
+
+    /**
+     * 事件ID，接收方可用于去重
+     */
+    private String id;
+
+    /**
+     * 事件类型
+     */
+    private String type;
+
+    /**
+     * 文件名（不包含后缀）
+     */
+    private String filename;
+
+    /**
+     * BGM文件后缀，失败时为空
+     */
+    private String extension;
+
+    /**
+     * 下载接口URL，失败时为空
+     */
+    private String url;
+
+    /**
+     * 按时间范围提取的BGM片段，只提取完整BGM时为空
+     */
+    private List<ClipResponse> clips;
+
+    /**
+     * 事件说明
+     */
+    private String message;
+
+    /**
+     * 事件发生时间（毫秒时间戳）
+     */
+    private Long timestamp;
+
+    /**
+     * 提取完成事件
+     * @param filename 文件名（不包含后缀）
+     * @param url 下载接口URL
+     * @param extension BGM文件后缀
+     * @return 完成事件
+     */
+    public static WebhookEvent completed(String filename, String url, String extension) {
+        return new WebhookEvent(UUID.randomUUID().toString(), BGM_COMPLETED, filename, extension, url, null,
+                "BGM提取成功", System.currentTimeMillis());
+    }
+
+    /**
+     * 片段提取完成事件，不包含完整BGM
+     * @param filename 文件名（不包含后缀）
+     * @param url 下载接口URL
+     * @param clips 提取的片段
+     * @return 完成事件
+     */
+    public static WebhookEvent clipsCompleted(String filename, String url, List<ClipResponse> clips) {
+        return new WebhookEvent(UUID.randomUUID().toString(), BGM_COMPLETED, filename, null, url, clips,
+                "BGM片段提取成功", System.currentTimeMillis());
+    }
+
+    /**
+     * 提取失败事件
+     * @param filename 文件名（不包含后缀）
+     * @param message 失败原因
+     * @return 失败事件
+     */
+    public static WebhookEvent failed(String filename, String message) {
+        return new WebhookEvent(UUID.randomUUID().toString(), BGM_FAILED, filename, null, null, null,
+                message, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,26 @@
+package com.yang.video.service;
+
+import com.yang.video.util.FFmpegJobBudget;
+import com.yang.video.util.FFmpegStats;
+
+/**
+ * FFmpegGovernor接口，负责ffmpeg任务的并发准入和资源预算分配
+ */
+public interface FFmpegGovernor {
+
+    /**
+     * 申请执行一个ffmpeg任务，并发已满时排队等待
+     *
+     * @return 本次任务的资源预算
+     * @throws com.yang.video.exception.ServiceException 排队超时时抛出
+     */
+    FFmpegJobBudget acquire();
+
+    /**
+     * 任务结束后归还资源
+     *
+     * @param budget 申请时获得的资源预算
+     * @param stats  任务执行统计，任务失败时可为空
+     */
+    void release(FFmpegJobBudget budget, FFmpegStats stats);
+}
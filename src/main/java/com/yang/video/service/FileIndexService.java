@@ -0,0 +1,78 @@
+package com.yang.video.service;
+
+import com.yang.video.dto.FileMetadata;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * FileIndexService接口，维护上传目录中文件的内存元数据索引
+ * <p>
+ * 索引在启动时通过并行扫描重建，之后由写入和删除操作同步更新，查询时不再访问文件系统
+ */
+public interface FileIndexService {
+
+    /**
+     * 按文件名查询元数据
+     *
+     * @param filename 文件名
+     * @return 文件元数据，未找到时返回null
+     */
+    FileMetadata lookup(String filename);
+
+    /**
+     * 获取新文件的存放路径，并确保所在目录存在
+     *
+     * @param filename 文件名
+     * @return 文件路径
+     * @throws com.yang.video.exception.ServiceException 创建目录失败时抛出
+     */
+    Path resolve(String filename);
+
+    /**
+     * 文件写入完成后登记到索引
+     *
+     * @param file 文件路径
+     * @return 文件元数据
+     * @throws IOException 读取文件属性失败时抛出
+     */
+    FileMetadata register(Path file) throws IOException;
+
+    /**
+     * 文件写入完成后登记到索引，并记录写入时已计算的内容哈希
+     *
+     * @param file        文件路径
+     * @param sha256 写入时计算的 SHA-256 摘要
+     * @return 文件元数据
+     * @throws IOException 读取文件属性失败时抛出
+     */
+    FileMetadata register(Path file, byte[] sha256) throws IOException;
+
+    /**
+     * 获取文件的内容哈希，尚未计算时读取文件计算并缓存
+     *
+     * @param filename 文件名
+     * @return 内容哈希，文件不存在时返回0
+     * @throws IOException 读取文件失败时抛出
+     */
+    long contentHash(String filename) throws IOException;
+
+    /**
+     * 删除文件并从索引中移除
+     *
+     * @param filename 文件名
+     * @return 文件是否存在于索引中
+     * @throws IOException 删除文件失败时抛出
+     */
+    boolean delete(String filename) throws IOException;
+
+    /**
+     * 获取索引中所有文件的快照
+     * <p>
+     * 定时清理任务据此按保留期淘汰片段缓存，无需遍历片段目录
+     *
+     * @return 文件元数据列表
+     */
+    List<FileMetadata> list();
+}
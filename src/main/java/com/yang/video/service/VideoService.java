@@ -1,17 +1,42 @@
 package com.yang.video.service;
 
+import com.yang.video.dto.ClipResponse;
+import com.yang.video.dto.TimeRange;
 import com.yang.video.dto.UploadResponse;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
+import java.util.List;
 
 public interface VideoService {
     /**
      * 上传视频文件
      * @param file 要上传的视频文件
-     * @return 返回上传成功后的响应信息
+     * @param callbackUrl 完成回调地址，可为空
+     * @param ranges 需要提取的时间范围，为空时提取完整BGM
+     * @return 返回上传成功后的响应信息，提取在后台进行，状态为 pending
      */
-    UploadResponse upload(MultipartFile file);
+    UploadResponse upload(MultipartFile file, String callbackUrl, List<TimeRange> ranges);
 
-    void getBGM(File inputVideoFile);
+    /**
+     * 查询上传后的提取状态
+     * @param filename 上传时返回的文件名（不包含后缀）
+     * @return 提取状态，完成后包含BGM后缀或片段信息
+     */
+    UploadResponse uploadStatus(String filename);
+
+    /**
+     * 从已上传的视频中按时间范围提取BGM片段，相同内容和范围的片段直接复用
+     * @param filename 上传时返回的文件名（不包含后缀）
+     * @param ranges 需要提取的时间范围
+     * @return 片段信息，顺序与时间范围一致
+     */
+    List<ClipResponse> extractClips(String filename, List<TimeRange> ranges);
+
+    /**
+     * 提取视频文件中的背景音乐
+     * @param inputVideoFile 输入视频文件
+     * @return 提取出的音频文件，与视频文件同名，后缀由实际输出格式决定；提取失败时返回null
+     */
+    File getBGM(File inputVideoFile);
 }
@@ -0,0 +1,19 @@
+package com.yang.video.service;
+
+import com.yang.video.dto.WebhookEvent;
+
+public interface WebhookService {
+    /**
+     * 异步投递回调事件
+     * @param callbackUrl 回调地址
+     * @param event 回调事件
+     */
+    void publish(String callbackUrl, WebhookEvent event);
+
+    /**
+     * 检查回调地址是否合法（仅允许 http/https，且默认不允许指向本机或内网地址）
+     * @param callbackUrl 回调地址
+     * @return 合法返回true
+     */
+    boolean isValidCallbackUrl(String callbackUrl);
+}
@@ -0,0 +1,298 @@
+package com.yang.video.service.impl;
+
+import cn.hutool.core.text.CharSequenceUtil;
+import com.yang.video.config.FFmpegGovernorProperties;
+import com.yang.video.exception.ServiceException;
+import com.yang.video.service.FFmpegGovernor;
+import com.yang.video.util.FFmpegJobBudget;
+import com.yang.video.util.FFmpegStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * FFmpegGovernorImpl类实现了FFmpegGovernor接口，控制同时运行的ffmpeg进程数和每个进程的线程数
+ * <p>
+ * 并发数按 CPU核数 / 每任务线程数 计算，使所有任务的线程总数不超过核数，避免多个进程争抢同一批核心。
+ * 每任务线程数在候选值（1、2、4…）之间做爬山调整：每个评估窗口统计 媒体时长 / CPU时间
+ * （由 ffmpeg -benchmark 输出的 utime + stime 得到），即每个CPU秒能处理多少秒媒体。
+ * 得分变差时退回上一个候选值，不再继续朝该方向尝试
+ */
+@Slf4j
+@Service
+public class FFmpegGovernorImpl implements FFmpegGovernor {
+
+    /**
+     * 启动时检查内存限制是否可用的超时时间
+     */
+    private static final long MEMORY_LIMIT_PROBE_TIMEOUT_SECONDS = 10L;
+
+    private final FFmpegGovernorProperties properties;
+
+    private final int cores;
+
+    /**
+     * 每任务线程数的候选值
+     */
+    private final int[] candidates;
+
+    /**
+     * 各候选值的得分（指数滑动平均），未测量时为NaN
+     */
+    private final double[] scores;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition released = lock.newCondition();
+
+    /**
+     * 已绑定给任务的CPU核
+     */
+    private final BitSet usedCores = new BitSet();
+
+    private final boolean affinityAvailable;
+
+    private final boolean niceAvailable;
+
+    private final boolean memoryLimitAvailable;
+
+    private int candidateIndex;
+
+    /**
+     * 探索方向，1 表示增加线程数，-1 表示减少
+     */
+    private int direction = 1;
+
+    private int runningJobs;
+
+    private int windowJobs;
+
+    private double windowMediaSeconds;
+
+    private double windowCpuSeconds;
+
+    @Autowired
+    public FFmpegGovernorImpl(FFmpegGovernorProperties properties) {
+        this(properties, Runtime.getRuntime().availableProcessors());
+    }
+
+    FFmpegGovernorImpl(FFmpegGovernorProperties properties, int cores) {
+        this.properties = properties;
+        this.cores = cores;
+
+        List<Integer> values = new ArrayList<>();
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            values.add(threads);
+        }
+        this.candidates = values.stream().mapToInt(Integer::intValue).toArray();
+        this.scores = new double[candidates.length];
+        Arrays.fill(scores, Double.NaN);
+        this.candidateIndex = initialCandidate(properties.getThreadsPerJob());
+
+        this.affinityAvailable = properties.isCpuAffinity() && isCommandAvailable("taskset");
+        this.niceAvailable = properties.getNice() != 0 && isCommandAvailable("nice");
+        this.memoryLimitAvailable = CharSequenceUtil.isNotBlank(properties.getMemoryMax()) && isMemoryLimitAvailable(properties.getMemoryMax());
+        log.info("ffmpeg 调度: 启用 {}，CPU核数 {}，初始每任务线程数 {}，最大并发 {}",
+                properties.isEnabled(), cores, candidates[candidateIndex], maxJobs());
+    }
+
+    @Override
+    public FFmpegJobBudget acquire() {
+        if (!properties.isEnabled()) {
+            return FFmpegJobBudget.UNLIMITED;
+        }
+        lock.lock();
+        try {
+            long remaining = properties.getQueueTimeout().toNanos();
+            while (runningJobs >= maxJobs()) {
+                if (remaining <= 0) {
+                    log.warn("ffmpeg 任务排队超时，当前运行 {} 个任务", runningJobs);
+                    throw new ServiceException(503, "转码任务繁忙，请稍后重试");
+                }
+                remaining = released.awaitNanos(remaining);
+            }
+            runningJobs++;
+            int threads = candidates[candidateIndex];
+            return new FFmpegJobBudget(threads,
+                    affinityAvailable ? allocateCores(threads) : null,
+                    niceAvailable ? properties.getNice() : 0,
+                    memoryLimitAvailable ? properties.getMemoryMax() : null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException(503, "转码任务排队被中断");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void release(FFmpegJobBudget budget, FFmpegStats stats) {
+        if (budget == FFmpegJobBudget.UNLIMITED) {
+            return;
+        }
+        lock.lock();
+        try {
+            runningJobs--;
+            releaseCores(budget.cpuList());
+            // 只统计按当前线程数执行的任务，调整前已开始的任务不计入新窗口
+            if (properties.isAdaptive() && stats != null && stats.isComplete()
+                    && budget.threads() == candidates[candidateIndex]) {
+                windowJobs++;
+                windowMediaSeconds += stats.mediaSeconds();
+                windowCpuSeconds += stats.cpuSeconds();
+                if (windowJobs >= properties.getTuneWindow()) {
+                    tune();
+                }
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 最大并发任务数，保证所有任务的线程总数不超过CPU核数
+     */
+    private int maxJobs() {
+        if (properties.getMaxJobs() > 0) {
+            return properties.getMaxJobs();
+        }
+        return Math.max(1, cores / candidates[candidateIndex]);
+    }
+
+    /**
+     * 记录当前候选值的得分并决定下一个候选值
+     * <p>
+     * 相邻候选值中已测得更高得分时移过去；当前候选值最好时，沿当前方向尝试尚未测量的相邻候选值，
+     * 该方向到头或已测量过则尝试另一侧，两侧都已测量时保持不变
+     */
+    private void tune() {
+        double score = windowMediaSeconds / windowCpuSeconds;
+        double previous = scores[candidateIndex];
+        scores[candidateIndex] = Double.isNaN(previous) ? score : previous * 0.5 + score * 0.5;
+        windowJobs = 0;
+        windowMediaSeconds = 0;
+        windowCpuSeconds = 0;
+
+        int next = candidateIndex;
+        for (int neighbor : new int[]{candidateIndex - 1, candidateIndex + 1}) {
+            if (isCandidate(neighbor) && !Double.isNaN(scores[neighbor]) && scores[neighbor] > scores[next]) {
+                next = neighbor;
+            }
+        }
+        if (next == candidateIndex) {
+            if (isCandidate(candidateIndex + direction) && Double.isNaN(scores[candidateIndex + direction])) {
+                next = candidateIndex + direction;
+            } else if (isCandidate(candidateIndex - direction) && Double.isNaN(scores[candidateIndex - direction])) {
+                next = candidateIndex - direction;
+            }
+        }
+        if (next != candidateIndex) {
+            log.info("ffmpeg 每任务线程数 {} -> {}（得分 {} 媒体秒/CPU秒），最大并发 {}",
+                    candidates[candidateIndex], candidates[next], String.format("%.2f", scores[candidateIndex]),
+                    Math.max(1, cores / candidates[next]));
+            direction = next > candidateIndex ? 1 : -1;
+            candidateIndex = next;
+        }
+    }
+
+    private boolean isCandidate(int index) {
+        return index >= 0 && index < candidates.length;
+    }
+
+    private int initialCandidate(int threadsPerJob) {
+        int index = 0;
+        while (index + 1 < candidates.length && candidates[index + 1] <= threadsPerJob) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * 分配空闲的CPU核，空闲核不足时不绑定
+     *
+     * @return taskset格式的CPU列表，如 "2,3"
+     */
+    private String allocateCores(int threads) {
+        if (cores - usedCores.cardinality() < threads) {
+            return null;
+        }
+        StringJoiner cpuList = new StringJoiner(",");
+        int core = -1;
+        for (int i = 0; i < threads; i++) {
+            core = usedCores.nextClearBit(core + 1);
+            usedCores.set(core);
+            cpuList.add(String.valueOf(core));
+        }
+        return cpuList.toString();
+    }
+
+    private void releaseCores(String cpuList) {
+        if (CharSequenceUtil.isBlank(cpuList)) {
+            return;
+        }
+        for (String core : cpuList.split(",")) {
+            usedCores.clear(Integer.parseInt(core));
+        }
+    }
+
+    /**
+     * 实际执行一次 systemd-run 检查内存限制能否生效
+     * <p>
+     * 命令存在不代表可用：容器中通常没有用户级 systemd 会话，此时每个ffmpeg任务都会启动失败，
+     * 因此启动时用同样的参数运行一次 true，失败时不设置内存上限
+     */
+    private static boolean isMemoryLimitAvailable(String memoryMax) {
+        if (!isCommandAvailable("systemd-run")) {
+            return false;
+        }
+        List<String> command = new ArrayList<>(new FFmpegJobBudget(0, null, 0, memoryMax).commandPrefix());
+        command.add("true");
+        try {
+            Process process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            if (!process.waitFor(MEMORY_LIMIT_PROBE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            } else if (process.exitValue() == 0) {
+                return true;
+            }
+        } catch (IOException e) {
+            log.debug("systemd-run 检查失败: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.warn("systemd-run --user --scope 不可用（可能没有用户级 systemd 会话），ffmpeg内存上限 {} 不生效", memoryMax);
+        return false;
+    }
+
+    /**
+     * 检查命令是否在PATH中，不存在时对应的限制不生效
+     */
+    private static boolean isCommandAvailable(String command) {
+        String path = System.getenv("PATH");
+        if (path != null) {
+            for (String directory : path.split(File.pathSeparator)) {
+                if (Files.isExecutable(Path.of(directory, command))) {
+                    return true;
+                }
+            }
+        }
+        log.warn("未找到命令 {}，对应的ffmpeg资源限制不生效", command);
+        return false;
+    }
+}
@@ -0,0 +1,301 @@
+package com.yang.video.service.impl;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.yang.video.dto.FileMetadata;
+import com.yang.video.exception.ServiceException;
+import com.yang.video.service.FileIndexService;
+import com.yang.video.util.FileNameValidator;
+import com.yang.video.util.FileStorageLayout;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * FileIndexServiceImpl类实现了FileIndexService接口
+ * <p>
+ * 索引只保存文件名、大小、修改时间、内容类型和内容哈希，文件路径在查找时由 {@link FileStorageLayout} 根据文件名计算，
+ * 只涉及字符比较和一次哈希，不访问文件系统，也不为每个条目常驻一个路径对象。
+ * 启动时先把旧版平铺在日期目录下的文件迁移到分片目录，再并行扫描所有分片目录重建索引
+ */
+@Slf4j
+@Service
+public class FileIndexServiceImpl implements FileIndexService {
+
+    private final Path root;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final FileIndexTable table = new FileIndexTable(1024);
+
+    /**
+     * 内容类型按编号存放在索引中，种类很少
+     */
+    private final List<String> contentTypes = new ArrayList<>();
+
+    public FileIndexServiceImpl() {
+        this(FileStorageLayout.ROOT);
+    }
+
+    FileIndexServiceImpl(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * 迁移旧版目录结构并重建索引
+     */
+    @PostConstruct
+    void rebuild() throws IOException {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int migrated = migrate();
+        List<Path> directories = indexedDirectories();
+        List<FileMetadata> entries = directories.parallelStream()
+                .flatMap(directory -> scan(directory).stream())
+                .toList();
+
+        lock.writeLock().lock();
+        try {
+            for (FileMetadata entry : entries) {
+                put(entry.filename(), entry.size(), entry.lastModified(), 0);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("文件索引重建完成: {} 个文件，{} 个目录，迁移 {} 个文件，耗时 {}ms",
+                entries.size(), directories.size(), migrated, System.currentTimeMillis() - start);
+    }
+
+    @Override
+    public FileMetadata lookup(String filename) {
+        lock.readLock().lock();
+        try {
+            int slot = table.find(filename);
+            return slot < 0 ? null : metadata(slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Path resolve(String filename) {
+        Path file = FileStorageLayout.resolve(root, filename);
+        try {
+            Files.createDirectories(file.getParent());
+        } catch (IOException e) {
+            log.error("创建上传目录失败: {}", file.getParent());
+            throw new ServiceException(500, "创建上传目录失败: " + file.getParent());
+        }
+        return file;
+    }
+
+    @Override
+    public FileMetadata register(Path file) throws IOException {
+        return index(file, 0);
+    }
+
+    @Override
+    public FileMetadata register(Path file, byte[] sha256) throws IOException {
+        return index(file, toContentHash(sha256));
+    }
+
+    private FileMetadata index(Path file, long contentHash) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        String filename = file.getFileName().toString();
+        lock.writeLock().lock();
+        try {
+            return metadata(put(filename, attributes.size(), attributes.lastModifiedTime().toMillis(), contentHash));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long contentHash(String filename) throws IOException {
+        FileMetadata metadata = lookup(filename);
+        if (metadata == null) {
+            return 0;
+        }
+        if (metadata.contentHash() != 0) {
+            return metadata.contentHash();
+        }
+        // 在锁外读取文件计算摘要，写回时确认条目未被替换
+        long contentHash = toContentHash(DigestUtil.sha256(metadata.path().toFile()));
+        lock.writeLock().lock();
+        try {
+            int slot = table.find(filename);
+            if (slot >= 0 && table.lastModified(slot) == metadata.lastModified()) {
+                table.contentHash(slot, contentHash);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return contentHash;
+    }
+
+    @Override
+    public boolean delete(String filename) throws IOException {
+        Files.deleteIfExists(FileStorageLayout.resolve(root, filename));
+        lock.writeLock().lock();
+        try {
+            return table.remove(filename);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<FileMetadata> list() {
+        lock.readLock().lock();
+        try {
+            List<FileMetadata> entries = new ArrayList<>(table.size());
+            table.forEach(slot -> entries.add(metadata(slot)));
+            return entries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 写入条目，调用方需持有写锁
+     *
+     * @return 槽位
+     */
+    private int put(String filename, long size, long lastModified, long contentHash) {
+        String contentType = MediaTypeFactory.getMediaType(filename)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM)
+                .toString();
+        int type = contentTypes.indexOf(contentType);
+        if (type < 0) {
+            type = contentTypes.size();
+            contentTypes.add(contentType);
+        }
+        table.put(filename, size, lastModified, contentHash, (byte) type);
+        return table.find(filename);
+    }
+
+    /**
+     * 读取条目，调用方需持有读锁或写锁
+     */
+    private FileMetadata metadata(int slot) {
+        String filename = table.name(slot);
+        return new FileMetadata(filename, FileStorageLayout.resolve(root, filename), table.fileSize(slot),
+                table.lastModified(slot), contentTypes.get(table.contentType(slot)), table.contentHash(slot));
+    }
+
+    /**
+     * 需要扫描的目录：根目录（不含日期的旧文件）、每个日期下的分片目录以及片段缓存的分片目录
+     */
+    private List<Path> indexedDirectories() throws IOException {
+        List<Path> directories = new ArrayList<>();
+        directories.add(root);
+        List<Path> parents = dateDirectories();
+        Path clipDirectory = root.resolve(FileStorageLayout.CLIP_DIRECTORY);
+        if (Files.isDirectory(clipDirectory)) {
+            parents.add(clipDirectory);
+        }
+        for (Path parent : parents) {
+            try (DirectoryStream<Path> shards = Files.newDirectoryStream(parent,
+                    path -> Files.isDirectory(path) && FileStorageLayout.isShardDirectory(path.getFileName().toString()))) {
+                shards.forEach(directories::add);
+            }
+        }
+        return directories;
+    }
+
+    /**
+     * 扫描单个目录下按存储布局存放的文件
+     * <p>
+     * 扫描期间被删除或无法读取的条目只记录日志并跳过，不影响其他文件的登记和应用启动
+     */
+    private List<FileMetadata> scan(Path directory) {
+        List<FileMetadata> entries = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String filename = file.getFileName().toString();
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    log.warn("读取文件属性失败，跳过 {}: {}", file, e.toString());
+                    continue;
+                }
+                // 不在布局位置上的文件无法通过文件名定位，未写完的临时文件不对外提供，均不登记
+                if (attributes.isRegularFile() && FileNameValidator.isValidFilename(filename)
+                        && !FileStorageLayout.isTemporary(filename)
+                        && FileStorageLayout.resolve(root, filename).equals(file)) {
+                    entries.add(new FileMetadata(filename, file, attributes.size(),
+                            attributes.lastModifiedTime().toMillis(), null, 0));
+                }
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            log.warn("扫描目录失败，跳过未读取的条目 {}: {}", directory, e.toString());
+        }
+        return entries;
+    }
+
+    /**
+     * 把旧版直接放在日期目录下的文件移动到对应的分片目录
+     *
+     * @return 迁移的文件数
+     */
+    private int migrate() throws IOException {
+        List<Path> legacyFiles = new ArrayList<>();
+        for (Path dateDirectory : dateDirectories()) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dateDirectory, Files::isRegularFile)) {
+                files.forEach(legacyFiles::add);
+            }
+        }
+        AtomicInteger migrated = new AtomicInteger();
+        legacyFiles.parallelStream().forEach(file -> {
+            String filename = file.getFileName().toString();
+            Path target = FileStorageLayout.resolve(root, filename);
+            if (!FileNameValidator.isValidFilename(filename) || FileStorageLayout.isTemporary(filename) || target.equals(file)
+                    || !target.getParent().getParent().equals(file.getParent())) {
+                return;
+            }
+            try {
+                Files.createDirectories(target.getParent());
+                Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+                migrated.incrementAndGet();
+            } catch (IOException e) {
+                log.warn("迁移文件失败 {}: {}", file, e.getMessage());
+            }
+        });
+        return migrated.get();
+    }
+
+    private List<Path> dateDirectories() throws IOException {
+        List<Path> directories = new ArrayList<>();
+        // 日期目录名与文件名的日期部分格式相同，复用文件名的日期校验
+        try (DirectoryStream<Path> dates = Files.newDirectoryStream(root, path -> Files.isDirectory(path)
+                && FileNameValidator.extractDateFromFilename(path.getFileName() + "_") != null)) {
+            dates.forEach(directories::add);
+        }
+        return directories;
+    }
+
+    private static long toContentHash(byte[] sha256) {
+        long hash = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            hash = (hash << 8) | (sha256[i] & 0xFF);
+        }
+        // 0 表示尚未计算
+        return hash == 0 ? 1 : hash;
+    }
+}
@@ -0,0 +1,189 @@
+package com.yang.video.service.impl;
+
+import java.util.function.IntConsumer;
+
+/**
+ * 文件元数据的开放寻址哈希表
+ * <p>
+ * 以文件名为键，大小、修改时间、内容哈希和内容类型编号分别存放在基本类型数组中，
+ * 每个条目只有文件名一个对象。冲突采用线性探测，删除时向后移位而不留墓碑，
+ * 查找始终只需一次探测序列。非线程安全，由调用方加锁
+ */
+final class FileIndexTable {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private static final double LOAD_FACTOR = 0.6;
+
+    private String[] names;
+
+    private long[] sizes;
+
+    private long[] modified;
+
+    private long[] hashes;
+
+    private byte[] types;
+
+    private int mask;
+
+    private int size;
+
+    private int threshold;
+
+    FileIndexTable(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 查找文件名所在的槽位
+     *
+     * @return 槽位，不存在时为-1
+     */
+    int find(String name) {
+        int slot = home(name);
+        String current;
+        while ((current = names[slot]) != null) {
+            if (current.equals(name)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * 插入或覆盖条目
+     */
+    void put(String name, long fileSize, long lastModified, long contentHash, byte contentType) {
+        if (size >= threshold) {
+            resize(names.length << 1);
+        }
+        int slot = home(name);
+        while (names[slot] != null && !names[slot].equals(name)) {
+            slot = (slot + 1) & mask;
+        }
+        if (names[slot] == null) {
+            names[slot] = name;
+            size++;
+        }
+        sizes[slot] = fileSize;
+        modified[slot] = lastModified;
+        hashes[slot] = contentHash;
+        types[slot] = contentType;
+    }
+
+    /**
+     * 删除条目，并把后续探测链上的条目前移填补空位
+     *
+     * @return 条目是否存在
+     */
+    boolean remove(String name) {
+        int gap = find(name);
+        if (gap < 0) {
+            return false;
+        }
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (names[slot] == null) {
+                break;
+            }
+            // 当前条目的理想位置不在 (gap, slot] 区间内时，才能移到空位上
+            int home = home(names[slot]);
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                move(slot, gap);
+                gap = slot;
+            }
+        }
+        names[gap] = null;
+        size--;
+        return true;
+    }
+
+    String name(int slot) {
+        return names[slot];
+    }
+
+    long fileSize(int slot) {
+        return sizes[slot];
+    }
+
+    long lastModified(int slot) {
+        return modified[slot];
+    }
+
+    long contentHash(int slot) {
+        return hashes[slot];
+    }
+
+    void contentHash(int slot, long contentHash) {
+        hashes[slot] = contentHash;
+    }
+
+    byte contentType(int slot) {
+        return types[slot];
+    }
+
+    /**
+     * 遍历所有已占用的槽位
+     */
+    void forEach(IntConsumer action) {
+        for (int slot = 0; slot < names.length; slot++) {
+            if (names[slot] != null) {
+                action.accept(slot);
+            }
+        }
+    }
+
+    private int home(String name) {
+        // 打散 String.hashCode 的低位，避免相同前缀（日期）的文件名聚集
+        int hash = name.hashCode() * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void move(int from, int to) {
+        names[to] = names[from];
+        sizes[to] = sizes[from];
+        modified[to] = modified[from];
+        hashes[to] = hashes[from];
+        types[to] = types[from];
+    }
+
+    private void resize(int capacity) {
+        String[] oldNames = names;
+        long[] oldSizes = sizes;
+        long[] oldModified = modified;
+        long[] oldHashes = hashes;
+        byte[] oldTypes = types;
+        allocate(capacity);
+        size = 0;
+        for (int slot = 0; slot < oldNames.length; slot++) {
+            if (oldNames[slot] != null) {
+                put(oldNames[slot], oldSizes[slot], oldModified[slot], oldHashes[slot], oldTypes[slot]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        names = new String[capacity];
+        sizes = new long[capacity];
+        modified = new long[capacity];
+        hashes = new long[capacity];
+        types = new byte[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * LOAD_FACTOR <= expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -4,37 +4,122 @@ import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.text.CharSequenceUtil;
 import cn.hutool.core.text.StrPool;
+import cn.hutool.crypto.digest.DigestAlgorithm;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.yang.video.dto.ClipResponse;
+import com.yang.video.dto.FileMetadata;
+import com.yang.video.dto.TimeRange;
 import com.yang.video.dto.UploadResponse;
+import com.yang.video.dto.WebhookEvent;
 import com.yang.video.exception.ServiceException;
+import com.yang.video.service.FFmpegGovernor;
+import com.yang.video.service.FileIndexService;
 import com.yang.video.service.VideoService;
+import com.yang.video.service.WebhookService;
+import com.yang.video.util.FFmpegJobBudget;
+import com.yang.video.util.FFmpegStats;
 import com.yang.video.util.FFmpegUtils;
 import com.yang.video.util.FileNameValidator;
+import com.yang.video.util.FileStorageLayout;
+import com.yang.video.util.demux.AudioDemuxUtils;
+import com.yang.video.util.waveform.WaveformUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * VideoServiceImpl类实现了VideoService接口，提供视频上传和下载的服务
  */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class VideoServiceImpl implements VideoService {
+
+    /**
+     * 片段的编码参数标识，参与缓存文件名，修改编码参数时需同步修改
+     */
+    private static final String CLIP_PROFILE = "q0";
+
+    private static final String CLIP_EXTENSION = "mp3";
+
+    /**
+     * 完整BGM可能的后缀：进程内提取的音轨为aac或mp3，FFmpeg转码为mp3
+     */
+    private static final List<String> BGM_EXTENSIONS = List.of("aac", "mp3");
+
+    private static final String DOWNLOAD_URL = "/api/video/download";
+
+    private static final String WAVEFORM_URL = "/api/video/waveform";
+
+    /**
+     * 提取结束后状态记录的保留时间
+     */
+    private static final Duration UPLOAD_STATUS_RETENTION = Duration.ofDays(1);
+
+    private final WebhookService webhookService;
+
+    private final FFmpegGovernor ffmpegGovernor;
+
+    private final FileIndexService fileIndexService;
+
+    /**
+     * 正在提取的片段，避免同一片段被并发重复提取
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> clipsInProgress = new ConcurrentHashMap<>();
+
+    /**
+     * 上传后的提取状态，键为不包含后缀的文件名
+     */
+    private final ConcurrentHashMap<String, UploadJob> uploads = new ConcurrentHashMap<>();
+
+    /**
+     * 后台任务（BGM提取、波形摘要生成），每个任务一个虚拟线程，ffmpeg 的实际并发由转码调度器控制
+     */
+    private final ExecutorService jobExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * 上传的提取状态
+     *
+     * @param response   当前状态和结果
+     * @param finishedAt 结束时间（毫秒时间戳），未结束时为0
+     */
+    private record UploadJob(UploadResponse response, long finishedAt) {
+    }
+
     /**
      * 上传视频文件
      *
      * @param file 要上传的视频文件
-     * @return 返回上传成功后的响应信息
-     * @throws ServiceException 如果文件上传过程中发生错误或文件格式不正确，则抛出此异常
+     * @param callbackUrl 完成回调地址，可为空
+     * @param ranges 需要提取的时间范围，为空时提取完整BGM
+     * @return 返回上传成功后的响应信息，状态为 pending，提取结果通过回调地址或状态接口获取
+     * @throws ServiceException 如果文件上传过程中发生错误、文件格式不正确或回调地址不合法，则抛出此异常
      */
     @Override
-    public UploadResponse upload(MultipartFile file) {
+    public UploadResponse upload(MultipartFile file, String callbackUrl, List<TimeRange> ranges) {
+        evictFinishedUploads();
+
         // 获取文件原始名称
         String originalFilename = file.getOriginalFilename();
         // 获取文件扩展名
@@ -43,58 +128,332 @@ public class VideoServiceImpl implements VideoService {
             log.warn("上传文件时发生错误或文件格式不正确");
             throw new ServiceException(400, "上传文件时发生错误或文件格式不正确");
         }
-
-        // 设置上传文件的保存路径，这里保存到项目的根目录
-        Path uploadDir = Paths.get(System.getProperty("user.dir"), "uploads", DateUtil.today());
-        File directory = uploadDir.toFile();
-        if (!directory.exists()) {
-            // 创建目录并检查是否成功
-            boolean created = directory.mkdirs();
-            if (!created) {
-                log.error("创建上传目录失败: {}", uploadDir);
-                throw new ServiceException(500, "创建上传目录失败: " + uploadDir);
-            }
+        if (CharSequenceUtil.isNotBlank(callbackUrl) && !webhookService.isValidCallbackUrl(callbackUrl)) {
+            log.warn("回调地址不合法: {}", callbackUrl);
+            throw new ServiceException(400, "回调地址不合法，仅支持 http/https，且不能指向本机或内网地址");
         }
 
         // 生成新的文件名，使用UUID以避免文件名冲突
         String newFileName = DateUtil.today() + StrPool.UNDERLINE + UUID.randomUUID() + StrPool.DOT + fileExtension;
 
-        // 保存文件
-        Path destFilePath = uploadDir.resolve(newFileName);
+        // 按日期和分片目录保存，例如 uploads/2025-09-29/3f/
+        Path destFilePath = fileIndexService.resolve(newFileName);
 
+        FileMetadata video;
         try {
-            // 保存文件到指定路径
-            Files.copy(file.getInputStream(), destFilePath);
+            // 保存文件到指定路径，同时计算内容摘要
+            MessageDigest digest = DigestUtil.digester(DigestAlgorithm.SHA256).getDigest();
+            try (InputStream inputStream = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(inputStream, destFilePath);
+            }
+            video = fileIndexService.register(destFilePath, digest.digest());
         } catch (IOException e) {
             log.error("上传文件时发生错误: {}", e.getMessage(), e);
             throw new ServiceException(500, "上传文件失败: " + e.getMessage());
         }
 
-        getBGM(destFilePath.toFile());
-
         // 分离文件名和扩展名
         String filenameWithoutExtension = CharSequenceUtil.subBefore(newFileName, StrPool.DOT, true);
-        
-        // 返回上传响应信息，使用BGM文件的后缀名（mp3）
-        return new UploadResponse(filenameWithoutExtension, "/api/video/download", "mp3");
+
+        // 保存后立即返回，提取在后台执行，不占用请求线程和接口并发名额
+        UploadResponse pending = uploadResponse(filenameWithoutExtension, ranges.isEmpty(), null, null,
+                UploadResponse.STATUS_PENDING, "正在提取BGM");
+        uploads.put(filenameWithoutExtension, new UploadJob(pending, 0));
+        try {
+            jobExecutor.execute(() -> extractUploaded(video, filenameWithoutExtension, callbackUrl, ranges));
+        } catch (RejectedExecutionException e) {
+            // 服务正在停止
+            uploads.remove(filenameWithoutExtension);
+            throw new ServiceException(503, "服务正在停止，请稍后重试");
+        }
+        return pending;
     }
 
     /**
-     * 通过FFmpeg获取背景音乐
+     * 查询上传后的提取状态
+     *
+     * @param filename 上传时返回的文件名（不包含后缀）
+     * @return 提取状态和结果
+     * @throws ServiceException 找不到对应的上传记录时抛出
      */
     @Override
-    public void getBGM(File inputVideoFile) {
-        String outputAudioFilePath = CharSequenceUtil.subBefore(inputVideoFile.getPath(), StrPool.DOT, true) + StrPool.DOT + "mp3";
-        File outputAudioFile = FileUtil.newFile(outputAudioFilePath);
+    public UploadResponse uploadStatus(String filename) {
+        UploadJob job = uploads.get(filename);
+        if (job != null) {
+            return job.response();
+        }
+        // 状态记录已过期或服务重启过，完整BGM仍可通过索引确认
+        for (String extension : BGM_EXTENSIONS) {
+            if (fileIndexService.lookup(filename + StrPool.DOT + extension) != null) {
+                return uploadResponse(filename, true, extension, null, UploadResponse.STATUS_COMPLETED, "BGM提取成功");
+            }
+        }
+        throw new ServiceException(404, "上传记录不存在");
+    }
+
+    /**
+     * 后台提取任务：提取完整BGM或片段，记录结果并通知回调地址
+     */
+    private void extractUploaded(FileMetadata video, String filename, String callbackUrl, List<TimeRange> ranges) {
+        UploadResponse result;
+        WebhookEvent event;
         try {
-            FFmpegUtils.extractBGM(inputVideoFile, outputAudioFile);
+            if (ranges.isEmpty()) {
+                File bgmFile = getBGM(video.path().toFile());
+                // 根据提取的实际结果（ffmpeg退出码）决定回调事件
+                if (bgmFile == null) {
+                    throw new ServiceException(500, "BGM提取失败");
+                }
+                registerOutput(bgmFile);
+                generateWaveform(bgmFile);
+                String extension = FileUtil.extName(bgmFile);
+                result = uploadResponse(filename, true, extension, null, UploadResponse.STATUS_COMPLETED, "BGM提取成功");
+                event = WebhookEvent.completed(filename, DOWNLOAD_URL, extension);
+            } else {
+                // 只需要片段时不提取完整BGM，ffmpeg只解码所需的时间窗口
+                List<ClipResponse> clips = extractClips(video, ranges);
+                result = uploadResponse(filename, false, null, clips, UploadResponse.STATUS_COMPLETED, "BGM片段提取成功");
+                event = WebhookEvent.clipsCompleted(filename, DOWNLOAD_URL, clips);
+            }
+        } catch (RuntimeException e) {
+            // 转码排队超时、时间范围超出视频时长等情况同样记录并通知
+            String message = e instanceof ServiceException ? e.getMessage() : "BGM提取失败";
+            log.error("提取BGM失败: {}，原因: {}", filename, e.getMessage(), e);
+            result = uploadResponse(filename, ranges.isEmpty(), null, null, UploadResponse.STATUS_FAILED, message);
+            event = WebhookEvent.failed(filename, message);
+        }
+        uploads.put(filename, new UploadJob(result, System.currentTimeMillis()));
+        // 通知回调地址，客户端无需轮询状态接口
+        notify(callbackUrl, event);
+    }
+
+    private static UploadResponse uploadResponse(String filename, boolean fullBgm, String extension,
+                                                 List<ClipResponse> clips, String status, String message) {
+        // 只提取片段时没有完整BGM，也就没有波形摘要
+        return new UploadResponse(filename, DOWNLOAD_URL, fullBgm ? WAVEFORM_URL : null, extension, clips, status, message);
+    }
+
+    /**
+     * 移除已结束超过保留时间的状态记录
+     */
+    private void evictFinishedUploads() {
+        long expiredBefore = System.currentTimeMillis() - UPLOAD_STATUS_RETENTION.toMillis();
+        uploads.values().removeIf(job -> job.finishedAt() > 0 && job.finishedAt() < expiredBefore);
+    }
+
+    /**
+     * 从已上传的视频中按时间范围提取BGM片段
+     *
+     * @param filename 上传时返回的文件名（不包含后缀）
+     * @param ranges 需要提取的时间范围
+     * @return 片段信息
+     * @throws ServiceException 视频不存在、时间范围超出视频时长或提取失败时抛出
+     */
+    @Override
+    public List<ClipResponse> extractClips(String filename, List<TimeRange> ranges) {
+        if (ranges.isEmpty()) {
+            throw new ServiceException(400, "请指定时间范围");
+        }
+        for (String extension : FileNameValidator.VIDEO_EXTENSIONS) {
+            FileMetadata video = fileIndexService.lookup(filename + StrPool.DOT + extension);
+            if (video != null) {
+                return extractClips(video, ranges);
+            }
+        }
+        log.warn("视频不存在: {}", filename);
+        throw new ServiceException(404, "视频不存在");
+    }
+
+    private List<ClipResponse> extractClips(FileMetadata video, List<TimeRange> ranges) {
+        long contentHash;
+        try {
+            contentHash = fileIndexService.contentHash(video.filename());
+        } catch (IOException e) {
+            log.error("计算视频摘要失败: {}", e.getMessage(), e);
+            throw new ServiceException(500, "读取视频失败");
+        }
+        List<ClipResponse> clips = new ArrayList<>(ranges.size());
+        for (TimeRange range : ranges) {
+            clips.add(extractClip(video.path(), contentHash, range));
+        }
+        return clips;
+    }
+
+    /**
+     * 提取单个片段
+     * <p>
+     * 片段按 (视频内容, 时间范围, 编码参数) 缓存，文件名形如
+     * clip_0123456789abcdef.30000-30000.q0.mp3，不含上传日期，相同视频在任何一天被重复上传时都能直接复用。
+     * 同一片段的并发请求只执行一次ffmpeg
+     */
+    private ClipResponse extractClip(Path videoFile, long contentHash, TimeRange range) {
+        String clipFilename = FileStorageLayout.CLIP_PREFIX + String.format("%016x", contentHash)
+                + StrPool.DOT + range.key() + StrPool.DOT + CLIP_PROFILE + StrPool.DOT + CLIP_EXTENSION;
+        Double duration = Double.isInfinite(range.duration()) ? null : range.duration();
+        if (fileIndexService.lookup(clipFilename) != null) {
+            return new ClipResponse(clipFilename, DOWNLOAD_URL, range.start(), duration, true);
+        }
+
+        CompletableFuture<Void> created = new CompletableFuture<>();
+        CompletableFuture<Void> existing = clipsInProgress.putIfAbsent(clipFilename, created);
+        if (existing != null) {
+            // 等待正在进行的同一片段提取完成
+            try {
+                existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof ServiceException serviceException
+                        ? serviceException
+                        : new ServiceException(500, "提取BGM片段失败");
+            }
+            return new ClipResponse(clipFilename, DOWNLOAD_URL, range.start(), duration, true);
+        }
+
+        try {
+            // 检查与登记之间可能已有其他请求完成
+            boolean cached = fileIndexService.lookup(clipFilename) != null;
+            if (!cached) {
+                writeClip(videoFile, range, fileIndexService.resolve(clipFilename));
+            }
+            created.complete(null);
+            return new ClipResponse(clipFilename, DOWNLOAD_URL, range.start(), duration, cached);
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            clipsInProgress.remove(clipFilename, created);
+        }
+    }
+
+    /**
+     * 先写入临时文件，完整生成后再移动到缓存位置并登记索引
+     */
+    private void writeClip(Path videoFile, TimeRange range, Path clipFile) {
+        Path partFile = clipFile.resolveSibling(clipFile.getFileName() + FileStorageLayout.TEMPORARY_SUFFIX);
+        FFmpegJobBudget budget = ffmpegGovernor.acquire();
+        FFmpegStats stats = null;
+        try {
+            stats = FFmpegUtils.extractClip(videoFile.toFile(), partFile.toFile(), range.start(), range.duration(), budget);
+            // 起始时间超出视频时长时没有输出任何音频帧，mp3 文件中只有标签头
+            if (stats.mediaSeconds() <= 0) {
+                throw new ServiceException(400, "时间范围超出视频时长: " + range.key());
+            }
+            Files.move(partFile, clipFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            fileIndexService.register(clipFile);
+        } catch (IOException e) {
+            log.error("提取BGM片段失败: {}", e.getMessage(), e);
+            throw new ServiceException(500, "提取BGM片段失败");
+        } catch (InterruptedException e) {
+            // 保留中断状态
+            Thread.currentThread().interrupt();
+            throw new ServiceException(500, "提取BGM片段被中断");
+        } finally {
+            ffmpegGovernor.release(budget, stats);
+            FileUtil.del(partFile);
+        }
+    }
+
+    /**
+     * 获取背景音乐
+     * <p>
+     * 优先在进程内直接拷贝 MP4/MKV 中的 AAC/MP3 音轨，不支持的格式再通过FFmpeg转码为mp3。
+     * 转码失败（退出码非0或超时）时返回null
+     */
+    @Override
+    public File getBGM(File inputVideoFile) {
+        String outputBasePath = CharSequenceUtil.subBefore(inputVideoFile.getPath(), StrPool.DOT, true);
+        try {
+            File demuxedAudioFile = AudioDemuxUtils.extractAudio(inputVideoFile, outputBasePath);
+            if (demuxedAudioFile != null) {
+                return demuxedAudioFile;
+            }
+        } catch (IOException e) {
+            log.warn("进程内提取音轨失败，回退到FFmpeg: {}", e.getMessage());
+        }
+
+        File outputAudioFile = FileUtil.newFile(outputBasePath + StrPool.DOT + "mp3");
+        // 按调度器分配的线程数运行，避免并发任务争抢CPU
+        FFmpegJobBudget budget = ffmpegGovernor.acquire();
+        FFmpegStats stats = null;
+        try {
+            stats = FFmpegUtils.extractBGM(inputVideoFile, outputAudioFile, budget);
+            return outputAudioFile;
         } catch (IOException | InterruptedException e) {
             log.error(e.getMessage(), e);
             // 保留中断状态
             if (e instanceof InterruptedException) {
                 Thread.currentThread().interrupt();
             }
+            // 删除未写完的输出，避免被当作提取结果
+            FileUtil.del(outputAudioFile);
+            return null;
+        } finally {
+            ffmpegGovernor.release(budget, stats);
+        }
+    }
+
+    /**
+     * 在后台生成BGM的波形摘要，与BGM同名、后缀为wfm
+     * <p>
+     * 摘要只用于前端展示，不推迟提取结果的通知，生成失败不影响提取结果；解码同样受转码调度器限制，
+     * 生成完成并登记到索引之前，波形接口返回404
+     */
+    private void generateWaveform(File bgmFile) {
+        String summaryFilePath = CharSequenceUtil.subBefore(bgmFile.getPath(), StrPool.DOT, true) + StrPool.DOT + WaveformUtils.EXTENSION;
+        try {
+            jobExecutor.execute(() -> {
+                FFmpegJobBudget budget;
+                try {
+                    budget = ffmpegGovernor.acquire();
+                } catch (ServiceException e) {
+                    log.warn("跳过波形摘要生成: {}", e.getMessage());
+                    return;
+                }
+                try {
+                    File summaryFile = FileUtil.newFile(summaryFilePath);
+                    WaveformUtils.generate(bgmFile, summaryFile, budget);
+                    registerOutput(summaryFile);
+                } catch (IOException | InterruptedException e) {
+                    log.warn("生成波形摘要失败: {}", e.getMessage());
+                    // 保留中断状态
+                    if (e instanceof InterruptedException) {
+                        Thread.currentThread().interrupt();
+                    }
+                } finally {
+                    // 解码不输出CPU耗时，不参与线程数调优
+                    ffmpegGovernor.release(budget, null);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 服务正在停止，摘要只用于展示，直接跳过
+            log.warn("服务正在停止，跳过波形摘要生成: {}", bgmFile.getName());
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        jobExecutor.shutdownNow();
+    }
+
+    /**
+     * 通知回调地址
+     */
+    private void notify(String callbackUrl, WebhookEvent event) {
+        if (CharSequenceUtil.isNotBlank(callbackUrl)) {
+            webhookService.publish(callbackUrl, event);
         }
     }
 
+    /**
+     * 将生成的文件登记到索引，使下载接口可以直接查到
+     */
+    private void registerOutput(File outputFile) {
+        if (!outputFile.exists()) {
+            return;
+        }
+        try {
+            fileIndexService.register(outputFile.toPath());
+        } catch (IOException e) {
+            log.warn("登记文件索引失败: {}", e.getMessage());
+        }
+    }
 }
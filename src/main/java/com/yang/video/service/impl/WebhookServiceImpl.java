@@ -0,0 +1,374 @@
+package com.yang.video.service.impl;
+
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.text.CharSequenceUtil;
+import cn.hutool.crypto.SecureUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yang.video.config.WebhookProperties;
+import com.yang.video.dto.WebhookEvent;
+import com.yang.video.service.WebhookService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WebhookServiceImpl类实现了WebhookService接口，负责投递完成回调
+ * <p>
+ * 事件先进入有界队列，由分发线程按回调地址合并成批次，再交给发送线程池投递。
+ * 投递失败按指数退避重试，超过最大次数或遇到不可重试的响应时写入死信文件
+ */
+@Slf4j
+@Service
+public class WebhookServiceImpl implements WebhookService {
+    /**
+     * 签名请求头，值为 sha256=HMAC(secret, timestamp + "." + body) 的十六进制
+     */
+    public static final String SIGNATURE_HEADER = "X-VideoTool-Signature";
+
+    /**
+     * 签名时间戳请求头（秒），接收方可据此拒绝过期请求
+     */
+    public static final String TIMESTAMP_HEADER = "X-VideoTool-Timestamp";
+
+    private static final int SENDER_THREADS = 2;
+
+    private final WebhookProperties properties;
+
+    private final ObjectMapper objectMapper;
+
+    private final HttpClient httpClient;
+
+    private final BlockingQueue<Delivery> queue;
+
+    private final ScheduledExecutorService sender;
+
+    /**
+     * 分发线程，在 start 中创建，避免构造过程中把未初始化完成的对象暴露给其他线程
+     */
+    private Thread dispatcher;
+
+    /**
+     * 已提交但尚未开始投递的批次，停止时转入死信
+     */
+    private final Set<PendingDelivery> pending = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean running = true;
+
+    public WebhookServiceImpl(WebhookProperties properties, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(properties.getTimeout())
+                .build();
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(SENDER_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "webhook-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 停止时立即取消等待中的重试（由 stop 转入死信），只执行已到期的投递
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.sender = executor;
+    }
+
+    /**
+     * 待投递的单个事件
+     */
+    private record Delivery(String callbackUrl, WebhookEvent event) {
+    }
+
+    /**
+     * 同一回调地址正在合并的事件
+     */
+    private static final class Batch {
+        private final List<WebhookEvent> events = new ArrayList<>();
+
+        private final long deadline;
+
+        private Batch(long deadline) {
+            this.deadline = deadline;
+        }
+    }
+
+    /**
+     * 等待投递的批次
+     */
+    private record PendingDelivery(String callbackUrl, List<WebhookEvent> events, int attempt) {
+    }
+
+    /**
+     * 死信记录
+     */
+    record DeadLetter(String callbackUrl, List<WebhookEvent> events, int attempts, String reason, long timestamp) {
+    }
+
+    @PostConstruct
+    void start() {
+        dispatcher = new Thread(this::dispatch, "webhook-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+            dispatcher.join(properties.getTimeout().toMillis());
+        }
+        sender.shutdown();
+        if (!sender.awaitTermination(properties.getTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+            sender.shutdownNow();
+        }
+        // 被取消的重试以及未来得及开始的投递写入死信，重启后可据此补发
+        for (PendingDelivery delivery : pending) {
+            if (pending.remove(delivery)) {
+                deadLetter(delivery.callbackUrl(), delivery.events(), delivery.attempt() - 1, "shutdown");
+            }
+        }
+    }
+
+    @Override
+    public void publish(String callbackUrl, WebhookEvent event) {
+        if (!running || !queue.offer(new Delivery(callbackUrl, event))) {
+            log.warn("Webhook 队列已满或服务已停止，事件直接转入死信: {}", event.getId());
+            deadLetter(callbackUrl, List.of(event), 0, "queue full");
+        }
+    }
+
+    @Override
+    public boolean isValidCallbackUrl(String callbackUrl) {
+        URI uri;
+        try {
+            uri = URI.create(callbackUrl);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if (!("http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme()))
+                || CharSequenceUtil.isBlank(uri.getHost())) {
+            return false;
+        }
+        if (properties.isAllowPrivateNetworks()) {
+            return true;
+        }
+        // 解析出的任一地址指向内部网络都拒绝，避免通过回调访问内部服务
+        try {
+            for (InetAddress address : InetAddress.getAllByName(uri.getHost())) {
+                if (isInternalAddress(address)) {
+                    log.warn("回调地址指向内部网络: {} -> {}", uri.getHost(), address.getHostAddress());
+                    return false;
+                }
+            }
+            return true;
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 判断是否为回环、链路本地（含云厂商元数据地址 169.254.169.254）、内网、运营商级NAT或组播地址
+     */
+    private static boolean isInternalAddress(InetAddress address) {
+        if (address.isAnyLocalAddress() || address.isLoopbackAddress() || address.isLinkLocalAddress()
+                || address.isSiteLocalAddress() || address.isMulticastAddress()) {
+            return true;
+        }
+        byte[] bytes = address.getAddress();
+        if (bytes.length == 4) {
+            // 100.64.0.0/10
+            return (bytes[0] & 0xFF) == 100 && (bytes[1] & 0xC0) == 64;
+        }
+        // IPv6 唯一本地地址 fc00::/7
+        return (bytes[0] & 0xFE) == 0xFC;
+    }
+
+    /**
+     * 分发线程：按回调地址合并事件，达到批次大小或等待超时后提交发送
+     */
+    private void dispatch() {
+        Map<String, Batch> batches = new HashMap<>();
+        long batchDelay = properties.getBatchDelay().toMillis();
+
+        while (running) {
+            try {
+                Delivery delivery = queue.poll(waitMillis(batches, batchDelay), TimeUnit.MILLISECONDS);
+                if (delivery != null) {
+                    Batch batch = batches.computeIfAbsent(delivery.callbackUrl(),
+                            url -> new Batch(System.currentTimeMillis() + batchDelay));
+                    batch.events.add(delivery.event());
+                    if (batch.events.size() >= properties.getBatchSize()) {
+                        batches.remove(delivery.callbackUrl());
+                        submit(delivery.callbackUrl(), batch.events, 1, 0);
+                    }
+                }
+                flushExpired(batches, System.currentTimeMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        // 停止时把剩余事件全部提交，发送线程池关闭前会尽量完成首次投递
+        List<Delivery> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (Delivery delivery : remaining) {
+            batches.computeIfAbsent(delivery.callbackUrl(), url -> new Batch(0)).events.add(delivery.event());
+        }
+        flushExpired(batches, Long.MAX_VALUE);
+    }
+
+    private long waitMillis(Map<String, Batch> batches, long batchDelay) {
+        long earliest = Long.MAX_VALUE;
+        for (Batch batch : batches.values()) {
+            earliest = Math.min(earliest, batch.deadline);
+        }
+        return earliest == Long.MAX_VALUE ? batchDelay : Math.max(0, earliest - System.currentTimeMillis());
+    }
+
+    private void flushExpired(Map<String, Batch> batches, long now) {
+        Iterator<Map.Entry<String, Batch>> iterator = batches.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Batch> entry = iterator.next();
+            if (entry.getValue().deadline <= now) {
+                iterator.remove();
+                submit(entry.getKey(), entry.getValue().events, 1, 0);
+            }
+        }
+    }
+
+    private void submit(String callbackUrl, List<WebhookEvent> events, int attempt, long delayMillis) {
+        PendingDelivery delivery = new PendingDelivery(callbackUrl, events, attempt);
+        pending.add(delivery);
+        try {
+            sender.schedule(() -> {
+                if (pending.remove(delivery)) {
+                    deliver(callbackUrl, events, attempt);
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            // 线程池已关闭
+            pending.remove(delivery);
+            deadLetter(callbackUrl, events, attempt - 1, "shutdown");
+        }
+    }
+
+    /**
+     * 投递一个批次，失败时安排重试或转入死信
+     */
+    private void deliver(String callbackUrl, List<WebhookEvent> events, int attempt) {
+        String body;
+        try {
+            body = objectMapper.writeValueAsString(events);
+        } catch (JsonProcessingException e) {
+            // 序列化失败与网络无关，重试没有意义
+            log.error("Webhook 事件序列化失败: {}", e.getMessage(), e);
+            deadLetter(callbackUrl, events, attempt - 1, "serialization: " + e.getMessage());
+            return;
+        }
+        // 投递前重新检查解析结果，拦截提交后才改为指向内部地址的域名。
+        // HttpClient 建立连接时会再次解析域名，检查与连接之间的 DNS 重绑定无法由此防止，
+        // 对此有要求的部署应通过出口代理或网络策略限制回调可访问的地址
+        if (!isValidCallbackUrl(callbackUrl)) {
+            log.error("Webhook 回调地址不合法，转入死信: {}", callbackUrl);
+            deadLetter(callbackUrl, events, attempt - 1, "invalid callback url");
+            return;
+        }
+
+        String reason;
+        boolean retryable = true;
+        try {
+            String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(callbackUrl))
+                    .timeout(properties.getTimeout())
+                    .header("Content-Type", "application/json")
+                    .header(TIMESTAMP_HEADER, timestamp)
+                    .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8));
+            if (CharSequenceUtil.isNotBlank(properties.getSecret())) {
+                request.header(SIGNATURE_HEADER, "sha256=" + sign(timestamp, body));
+            }
+
+            int status = httpClient.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+            if (status >= 200 && status < 300) {
+                log.debug("Webhook 投递成功: {}，事件数: {}", callbackUrl, events.size());
+                return;
+            }
+            reason = "HTTP " + status;
+            // 除超时和限流外的4xx说明请求本身有问题，重试没有意义
+            retryable = status >= 500 || status == 408 || status == 429;
+        } catch (IOException e) {
+            reason = e.getClass().getSimpleName() + ": " + e.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reason = "interrupted";
+        }
+
+        if (retryable && attempt < properties.getMaxAttempts() && !sender.isShutdown()) {
+            long backoff = backoffMillis(attempt);
+            log.warn("Webhook 投递失败: {}，原因: {}，{}ms 后进行第 {} 次重试", callbackUrl, reason, backoff, attempt + 1);
+            submit(callbackUrl, events, attempt + 1, backoff);
+        } else {
+            log.error("Webhook 投递失败: {}，原因: {}，已尝试 {} 次，转入死信", callbackUrl, reason, attempt);
+            deadLetter(callbackUrl, events, attempt, reason);
+        }
+    }
+
+    /**
+     * 指数退避，并在 [backoff/2, backoff] 之间随机，避免大量回调同时重试
+     */
+    private long backoffMillis(int attempt) {
+        long initial = properties.getInitialBackoff().toMillis();
+        long max = properties.getMaxBackoff().toMillis();
+        long backoff = Math.min(max, initial << Math.min(attempt - 1, 30));
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    private String sign(String timestamp, String body) {
+        return SecureUtil.hmacSha256(properties.getSecret().getBytes(StandardCharsets.UTF_8))
+                .digestHex(timestamp + "." + body, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 死信按天追加写入 JSON Lines 文件
+     */
+    private synchronized void deadLetter(String callbackUrl, List<WebhookEvent> events, int attempts, String reason) {
+        Path file = Paths.get(properties.getDeadLetterDirectory(), "webhook-" + DateUtil.today() + ".jsonl");
+        try {
+            Files.createDirectories(file.getParent());
+            String line = objectMapper.writeValueAsString(
+                    new DeadLetter(callbackUrl, events, attempts, reason, System.currentTimeMillis())) + System.lineSeparator();
+            Files.writeString(file, line, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (JsonProcessingException e) {
+            log.error("序列化死信失败: {}", e.getMessage(), e);
+        } catch (IOException e) {
+            log.error("写入死信失败: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -1,43 +1,55 @@
 package com.yang.video.task;
 
+import com.yang.video.dto.FileMetadata;
+import com.yang.video.service.FileIndexService;
+import com.yang.video.util.FileNameValidator;
+import com.yang.video.util.FileStorageLayout;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.io.File;
 import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
 import java.time.Instant;
 
 /**
- * 文件清理调度器类，用于定期清理指定目录下的旧文件
+ * 文件清理调度器类，用于定期清理上传目录下的旧文件
+ * <p>
+ * 清理范围与分片布局引入之前一致：只处理上传根目录下的直接条目，日期目录中的文件不受影响。
+ * BGM片段缓存与上传日期无关，单独按保留期通过索引淘汰
  */
 @Slf4j(topic = "com.yang.video.task")
 @Component
+@RequiredArgsConstructor
 public class FileCleanupScheduler {
-    // 指定要清理的目录
-    private static final String DIRECTORY_PATH = System.getProperty("user.dir") + File.separator + "uploads";
     // 1 天
     private static final int DAYS_THRESHOLD = 1;
 
+    // BGM片段缓存保留 7 天，过期后再次请求时重新提取
+    private static final Duration CLIP_RETENTION = Duration.ofDays(7);
+
+    private final FileIndexService fileIndexService;
+
     /**
      * 定时任务方法，用于删除旧文件
-     * 该方法每天凌晨3点执行，检查并删除指定目录下超过一天的文件
+     * 该方法每天凌晨3点执行，检查并删除上传根目录下超过一天的文件，包括未登记到索引的残留文件，
+     * 并淘汰超过保留期的BGM片段缓存
      */
     @Scheduled(cron = "0 0 3 * * ?") // 每天凌晨 3 点执行
     public void deleteOldFiles() {
-        // 确保目录不为空
-        File directory = new File(DIRECTORY_PATH);
-        if (!directory.exists() || !directory.isDirectory()) {
-            log.warn("目录不存在或不是目录: {}", DIRECTORY_PATH);
-            return;
-        }
+        deleteOldFiles(FileStorageLayout.ROOT);
+    }
 
-        File[] files = directory.listFiles();
-        if (files == null || files.length == 0) {
-            log.info("目录 {} 为空，无需清理", DIRECTORY_PATH);
+    void deleteOldFiles(Path root) {
+        // 确保目录不为空
+        if (!Files.isDirectory(root)) {
+            log.warn("目录不存在或不是目录: {}", root);
             return;
         }
 
@@ -46,30 +58,71 @@ public class FileCleanupScheduler {
         // 初始化删除文件计数器
         int deletedCount = 0;
 
-        // 遍历目录下的所有文件
-        for (File file : files) {
-            try {
-                // 读取文件的基本属性
-                BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
-                Instant fileTime = attrs.lastModifiedTime().toInstant();
-
-                // 比较文件最后修改时间与一天前的时间，决定是否删
-                if (fileTime.isBefore(oneDayAgo)) {
-                    Path filePath = file.toPath();
-                    Files.delete(filePath);
-                    log.info("已删除文件: {}", file.getAbsolutePath());
+        // 遍历目录下的所有条目
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(root)) {
+            for (Path entry : entries) {
+                try {
+                    // 读取文件的基本属性
+                    BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+                    // 比较文件最后修改时间与一天前的时间，决定是否删除
+                    if (!attrs.lastModifiedTime().toInstant().isBefore(oneDayAgo)) {
+                        continue;
+                    }
+                    delete(root, entry);
+                    log.info("已删除文件: {}", entry);
                     deletedCount++;
+                } catch (DirectoryNotEmptyException e) {
+                    // 非空目录（日期目录）保留
+                    log.debug("保留非空目录: {}", entry);
+                } catch (IOException e) {
+                    // 处理IO异常，记录错误日志
+                    log.error("无法删除文件 {}: {}", entry, e.getMessage());
                 }
-            } catch (IOException e) {
-                // 处理IO异常，记录错误日志
-                log.error("无法删除文件 {}: {}", file.getAbsolutePath(), e.getMessage());
-            } catch (Exception e) {
-                // 处理其他异常，记录错误日志
-                log.error("处理文件 {} 失败: {}", file.getAbsolutePath(), e.getMessage());
             }
+        } catch (IOException e) {
+            log.error("遍历目录 {} 失败: {}", root, e.getMessage());
         }
 
         // 记录清理完成的日志
         log.info("清理完成，共删除 {} 个文件", deletedCount);
+
+        evictExpiredClips(Instant.now().minus(CLIP_RETENTION));
+    }
+
+    /**
+     * 淘汰创建时间早于截止时间的BGM片段缓存
+     * <p>
+     * 片段只通过索引查找和删除，索引与磁盘保持一致；缓存命中不更新修改时间，因此按创建时间淘汰。
+     * 空的分片目录保留，避免与正在写入的片段竞争
+     */
+    void evictExpiredClips(Instant cutoff) {
+        int evictedCount = 0;
+        for (FileMetadata file : fileIndexService.list()) {
+            if (!file.filename().startsWith(FileStorageLayout.CLIP_PREFIX)
+                    || file.lastModified() >= cutoff.toEpochMilli()) {
+                continue;
+            }
+            try {
+                if (fileIndexService.delete(file.filename())) {
+                    evictedCount++;
+                }
+            } catch (IOException e) {
+                log.error("无法删除片段缓存 {}: {}", file.filename(), e.getMessage());
+            }
+        }
+        log.info("片段缓存清理完成，共淘汰 {} 个片段", evictedCount);
+    }
+
+    /**
+     * 删除条目；位于存储布局位置上的文件通过索引删除，使索引保持一致
+     */
+    private void delete(Path root, Path entry) throws IOException {
+        String filename = entry.getFileName().toString();
+        if (Files.isRegularFile(entry) && FileNameValidator.isValidFilename(filename)
+                && FileStorageLayout.resolve(root, filename).equals(entry)) {
+            fileIndexService.delete(filename);
+        } else {
+            Files.delete(entry);
+        }
     }
 }
@@ -0,0 +1,56 @@
+package com.yang.video.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单个ffmpeg任务的资源预算
+ *
+ * @param threads   编解码及滤镜线程数，0表示不限制（由ffmpeg自行决定）
+ * @param cpuList   绑定的CPU列表（taskset格式，如 "0-1"），为空表示不绑定
+ * @param nice      进程优先级调整值，0表示不调整
+ * @param memoryMax 内存上限（systemd MemoryMax格式，如 "512M"），为空表示不限制
+ */
+public record FFmpegJobBudget(int threads, String cpuList, int nice, String memoryMax) {
+
+    /**
+     * 不做任何限制的预算
+     */
+    public static final FFmpegJobBudget UNLIMITED = new FFmpegJobBudget(0, null, 0, null);
+
+    /**
+     * 放在ffmpeg命令之前的包装命令，用于设置内存上限、优先级和CPU亲和性
+     *
+     * @return 包装命令，没有限制时为空列表
+     */
+    public List<String> commandPrefix() {
+        List<String> prefix = new ArrayList<>();
+        if (memoryMax != null && !memoryMax.isEmpty()) {
+            // 在独立的 cgroup scope 中运行，超过内存上限时只影响该任务
+            prefix.addAll(List.of("systemd-run", "--user", "--scope", "--quiet", "-p", "MemoryMax=" + memoryMax, "--"));
+        }
+        if (nice != 0) {
+            prefix.addAll(List.of("nice", "-n", String.valueOf(nice)));
+        }
+        if (cpuList != null && !cpuList.isEmpty()) {
+            prefix.addAll(List.of("taskset", "-c", cpuList));
+        }
+        return prefix;
+    }
+
+    /**
+     * 输入端的线程参数（解码和滤镜），需放在 -i 之前
+     */
+    public List<String> inputThreadOptions() {
+        return threads > 0
+                ? List.of("-threads", String.valueOf(threads), "-filter_threads", String.valueOf(threads))
+                : List.of();
+    }
+
+    /**
+     * 输出端的线程参数（编码），需放在输出文件之前
+     */
+    public List<String> outputThreadOptions() {
+        return threads > 0 ? List.of("-threads", String.valueOf(threads)) : List.of();
+    }
+}
@@ -0,0 +1,18 @@
+package com.yang.video.util;
+
+/**
+ * ffmpeg任务的执行统计，由 -benchmark 输出和进度信息解析得到
+ *
+ * @param mediaSeconds 处理的媒体时长（秒）
+ * @param cpuSeconds   ffmpeg进程消耗的CPU时间（用户态+内核态，秒），无法解析时为NaN
+ * @param wallSeconds  实际耗时（秒）
+ */
+public record FFmpegStats(double mediaSeconds, double cpuSeconds, double wallSeconds) {
+
+    /**
+     * 统计是否完整，可用于计算效率
+     */
+    public boolean isComplete() {
+        return mediaSeconds > 0 && cpuSeconds > 0 && !Double.isNaN(cpuSeconds);
+    }
+}
@@ -6,53 +6,192 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Slf4j
 public class FFmpegUtils {
 
+    /**
+     * 进度信息中的已处理时长，例如 time=00:01:23.45
+     */
+    private static final Pattern PROGRESS_TIME = Pattern.compile("time=(\\d+):(\\d+):(\\d+(?:\\.\\d+)?)");
+
+    /**
+     * -benchmark 输出的CPU耗时，例如 bench: utime=1.234s stime=0.056s rtime=0.789s
+     */
+    private static final Pattern BENCHMARK = Pattern.compile("utime=([\\d.]+)s stime=([\\d.]+)s");
+
+    /**
+     * 单个ffmpeg任务的最长执行时间，超时后强制结束进程
+     */
+    private static final long TIMEOUT_SECONDS = 600L;
+
     private FFmpegUtils() {
         throw new IllegalStateException("Utility class");
     }
 
     /**
-     * 使用ffmpeg命令提取视频文件中的背景音乐
+     * 按资源预算使用ffmpeg命令提取视频文件中的背景音乐
      *
      * @param inputVideoFile  输入视频文件
      * @param outputAudioFile 输出音频文件
+     * @param budget          资源预算
+     * @return 执行统计
+     * @throws IOException ffmpeg执行失败或超时时抛出
+     */
+    public static FFmpegStats extractBGM(File inputVideoFile, File outputAudioFile, FFmpegJobBudget budget) throws IOException, InterruptedException {
+        // 设置音频的编码质量，明确指定输出中包含输入文件中的音频流；-benchmark 在结束时输出CPU耗时；
+        // -y 直接覆盖已存在的输出、-nostdin 不读取标准输入，避免ffmpeg停在交互提示上直到超时
+        List<String> command = new ArrayList<>(budget.commandPrefix());
+        command.addAll(List.of("ffmpeg", "-y", "-nostdin", "-benchmark"));
+        command.addAll(budget.inputThreadOptions());
+        command.addAll(List.of("-i", inputVideoFile.getPath(), "-q:a", "0", "-map", "a"));
+        command.addAll(budget.outputThreadOptions());
+        command.add(outputAudioFile.getPath());
+        // 执行ffmpeg命令，等待进程结束，调用方在此之后才能释放资源预算或使用输出文件
+        FFmpegStats stats = Execution.start(command).await();
+        log.info("BGM extracted successfully.");
+        return stats;
+    }
+
+    /**
+     * 按时间范围提取背景音乐片段，输出为mp3
+     * <p>
+     * -ss 放在 -i 之前，ffmpeg 直接跳到起始位置之前最近的关键帧开始解码，只处理所需的时间窗口；
+     * 由于需要重新编码，ffmpeg 会丢弃起始位置之前解码出的数据（accurate_seek 默认开启），片段起点是精确的
+     *
+     * @param inputVideoFile  输入视频文件
+     * @param outputAudioFile 输出音频文件，格式固定为mp3，与后缀无关
+     * @param start           起始时间（秒）
+     * @param duration        片段时长（秒），无穷大表示到结尾
+     * @param budget          资源预算
+     * @return 执行统计
+     * @throws IOException ffmpeg执行失败或超时时抛出
      */
-    public static void extractBGM(File inputVideoFile, File outputAudioFile) throws IOException, InterruptedException {
-        // 设置音频的编码质量，明确指定输出中包含输入文件中的音频流
-        ProcessBuilder processBuilder = new ProcessBuilder("ffmpeg", "-i", inputVideoFile.getPath(), "-q:a", "0", "-map", "a", outputAudioFile.getPath());
-        // 执行ffmpeg命令
-        processBuilder.redirectErrorStream(true);
-        Process process = processBuilder.start();
-        // 异步读取输出流（重要！避免阻塞）
-        new Thread(() -> {
+    public static FFmpegStats extractClip(File inputVideoFile, File outputAudioFile, double start, double duration,
+                                          FFmpegJobBudget budget) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(budget.commandPrefix());
+        command.addAll(List.of("ffmpeg", "-y", "-nostdin", "-benchmark"));
+        command.addAll(budget.inputThreadOptions());
+        command.addAll(List.of("-ss", seconds(start), "-i", inputVideoFile.getPath()));
+        if (!Double.isInfinite(duration)) {
+            command.addAll(List.of("-t", seconds(duration)));
+        }
+        command.addAll(List.of("-map", "0:a:0", "-q:a", "0", "-f", "mp3"));
+        command.addAll(budget.outputThreadOptions());
+        command.add(outputAudioFile.getPath());
+        // 片段需要完整生成后才能放入缓存，等待进程结束
+        FFmpegStats stats = Execution.start(command).await();
+        log.info("Clip extracted successfully: {}s from {}s", duration, start);
+        return stats;
+    }
+
+    private static String seconds(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    /**
+     * 使用ffmpeg将音频解码为PCM，通过标准输出流式读取
+     * <p>
+     * 输出为WAV格式（16位、48kHz），多声道会被下混为立体声，单声道保持不变
+     *
+     * @param inputAudioFile 输入音频文件
+     * @param budget         资源预算，只使用其中的CPU亲和性、优先级和内存限制
+     * @return ffmpeg进程，调用方负责读取其标准输出并等待进程结束
+     */
+    public static Process decodeToWav(File inputAudioFile, FFmpegJobBudget budget) throws IOException {
+        List<String> command = new ArrayList<>(budget.commandPrefix());
+        // 音频解码本身是单线程的，固定为1个线程
+        command.addAll(List.of("ffmpeg", "-nostdin", "-v", "error", "-threads", "1", "-i", inputAudioFile.getPath(),
+                "-map", "0:a:0", "-af", "aformat=sample_fmts=s16:sample_rates=48000:channel_layouts=mono|stereo",
+                "-f", "wav", "pipe:1"));
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        // 标准输出用于传输PCM数据，错误输出直接丢弃，避免缓冲区写满导致进程阻塞
+        processBuilder.redirectError(ProcessBuilder.Redirect.DISCARD);
+        return processBuilder.start();
+    }
+
+    /**
+     * 正在执行的ffmpeg进程，异步读取输出并从中解析处理进度和CPU耗时
+     */
+    private static final class Execution {
+        private final Process process;
+
+        private final Thread outputReader;
+
+        private final long startNanos = System.nanoTime();
+
+        private volatile double mediaSeconds;
+
+        private volatile double cpuSeconds = Double.NaN;
+
+        private Execution(Process process) {
+            this.process = process;
+            // 异步读取输出流（重要！避免阻塞）
+            this.outputReader = new Thread(this::readOutput);
+        }
+
+        static Execution start(List<String> command) throws IOException {
+            ProcessBuilder processBuilder = new ProcessBuilder(command);
+            processBuilder.redirectErrorStream(true);
+            Execution execution = new Execution(processBuilder.start());
+            execution.outputReader.start();
+            return execution;
+        }
+
+        private void readOutput() {
             try (BufferedReader reader = new BufferedReader(
                     new InputStreamReader(process.getInputStream()))) {
                 String line;
                 while ((line = reader.readLine()) != null) {
                     // 实时监控输出
                     log.warn("[FFmpeg] {}", line);
+                    Matcher progress = PROGRESS_TIME.matcher(line);
+                    if (progress.find()) {
+                        mediaSeconds = Integer.parseInt(progress.group(1)) * 3600
+                                + Integer.parseInt(progress.group(2)) * 60
+                                + Double.parseDouble(progress.group(3));
+                    }
+                    Matcher benchmark = BENCHMARK.matcher(line);
+                    if (benchmark.find()) {
+                        cpuSeconds = Double.parseDouble(benchmark.group(1)) + Double.parseDouble(benchmark.group(2));
+                    }
                 }
             } catch (IOException e) {
                 log.error(e.getMessage(), e);
             }
-        }).start();
-        // 读取ffmpeg命令的错误输出
-        BufferedReader errorReader = new BufferedReader(new InputStreamReader(process.getErrorStream()));
-        String line;
-        while ((line = errorReader.readLine()) != null) {
-            log.error(line);
         }
 
-        // 等待命令执行完成并获取退出代码
-        boolean exitCode = process.waitFor(3L, TimeUnit.SECONDS);
-        if (exitCode) {
-            log.info("BGM extracted successfully.");
-        } else {
-            log.warn("Failed to extract BGM. Exit Code: {}", exitCode);
+        /**
+         * 等待进程结束并汇总统计，超时时强制结束进程
+         *
+         * @throws IOException 超时或退出码非0时抛出
+         */
+        FFmpegStats await() throws IOException, InterruptedException {
+            boolean exited;
+            try {
+                exited = process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                // 调用方不再等待时也要结束进程，避免脱离资源调度继续运行
+                process.destroyForcibly();
+                throw e;
+            }
+            if (!exited) {
+                process.destroyForcibly().waitFor();
+                throw new IOException("ffmpeg timed out after " + TIMEOUT_SECONDS + "s");
+            }
+            // 等待输出读取完毕，-benchmark 的结果在最后一行
+            outputReader.join(TimeUnit.SECONDS.toMillis(3L));
+            if (process.exitValue() != 0) {
+                throw new IOException("ffmpeg exited with code " + process.exitValue());
+            }
+            double wallSeconds = (System.nanoTime() - startNanos) / 1e9;
+            return new FFmpegStats(mediaSeconds, cpuSeconds, wallSeconds);
         }
     }
 }
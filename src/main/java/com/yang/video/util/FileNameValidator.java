@@ -1,11 +1,19 @@
 package com.yang.video.util;
 
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.regex.Pattern;
 
 public class FileNameValidator {
 
+    // 仅允许字母、数字、常见符号，预编译避免每次请求重新编译
+    private static final Pattern VALID_FILENAME = Pattern.compile("^[a-zA-Z0-9._-]+$");
+
+    // 允许上传的视频格式
+    public static final List<String> VIDEO_EXTENSIONS = List.of("mp4", "avi", "mkv");
+
+    // 日期部分的长度
+    public static final int DATE_LENGTH = 10;
+
     // 添加私有构造函数，防止实例化
     private FileNameValidator() {
         throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
@@ -23,8 +31,7 @@ public class FileNameValidator {
         }
 
         // 仅允许字母、数字、常见符号（防止特殊字符注入）
-        String regex = "^[a-zA-Z0-9._-]+$";
-        return filename.matches(regex);
+        return VALID_FILENAME.matcher(filename).matches();
     }
 
     /**
@@ -35,8 +42,7 @@ public class FileNameValidator {
      */
     public static boolean isValidVideoFile(String extName) {
         // 验证文件扩展名是否为允许的视频格式
-        String[] allowedExtensions = {"mp4", "avi", "mkv"};
-        for (String ext : allowedExtensions) {
+        for (String ext : VIDEO_EXTENSIONS) {
             if (ext.equals(extName)) {
                 return true;
             }
@@ -53,28 +59,42 @@ public class FileNameValidator {
      * @return 日期字符串（YYYY-MM-DD格式），如果无法提取则返回null
      */
     public static String extractDateFromFilename(String filename) {
-        if (filename == null || filename.trim().isEmpty()) {
-            return null;
+        return hasDatePrefix(filename) ? filename.substring(0, DATE_LENGTH) : null;
+    }
+
+    /**
+     * 判断文件名是否以 YYYY-MM-DD_ 开头
+     * <p>
+     * 计算存储路径时调用，逐字符校验而不解析日期，不分配对象。
+     * 与按 yyyy-MM-dd 宽松解析的规则一致：月份 01-12，日期 01-31，不按月份校验天数
+     *
+     * @param filename 文件名
+     * @return 是否带日期前缀
+     */
+    public static boolean hasDatePrefix(String filename) {
+        if (filename == null || filename.length() <= DATE_LENGTH || filename.charAt(DATE_LENGTH) != '_'
+                || filename.charAt(4) != '-' || filename.charAt(7) != '-') {
+            return false;
         }
+        int year = digits(filename, 0, 4);
+        int month = digits(filename, 5, 7);
+        int day = digits(filename, 8, 10);
+        return year >= 1 && month >= 1 && month <= 12 && day >= 1 && day <= 31;
+    }
 
-        try {
-            // 查找第一个下划线的位置
-            int underscoreIndex = filename.indexOf('_');
-            if (underscoreIndex == -1) {
-                return null;
+    /**
+     * 解析指定区间内的十进制数字，包含非数字字符时返回-1
+     */
+    private static int digits(String value, int from, int to) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
             }
-
-            // 提取日期部分（下划线之前的部分）
-            String datePart = filename.substring(0, underscoreIndex);
-            
-            // 验证日期格式是否为 YYYY-MM-DD
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-            LocalDate.parse(datePart, formatter);
-            
-            return datePart;
-        } catch (DateTimeParseException e) {
-            return null;
+            result = result * 10 + digit;
         }
+        return result;
     }
 
 }
@@ -0,0 +1,112 @@
+package com.yang.video.util;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 上传目录的存储布局
+ * <p>
+ * 文件按 日期/分片/文件名 存放，例如
+ * uploads/2025-09-29/3f/2025-09-29_772f9446-a9f9-4508-9f78-aa0e64222d81.mp3。
+ * 分片由文件名主干（第一个点之前的部分）的哈希决定，同一次上传产生的视频、BGM和波形摘要位于同一分片，
+ * 每天的文件均匀分散到 {@value #SHARD_COUNT} 个子目录中，避免单个目录条目过多。
+ * BGM片段按视频内容缓存，与上传日期无关，以 {@value #CLIP_PREFIX} 开头并存放在 clips/分片/文件名 下。
+ * 其他不含日期的文件名仍直接放在根目录下（向后兼容）
+ */
+public class FileStorageLayout {
+
+    /**
+     * 上传根目录
+     */
+    public static final Path ROOT = Paths.get(System.getProperty("user.dir"), "uploads");
+
+    /**
+     * 每个日期目录下的分片数
+     */
+    public static final int SHARD_COUNT = 256;
+
+    /**
+     * 写入中的临时文件后缀，写完后原子移动为正式文件名
+     */
+    public static final String TEMPORARY_SUFFIX = ".part";
+
+    /**
+     * BGM片段缓存文件名前缀
+     */
+    public static final String CLIP_PREFIX = "clip_";
+
+    /**
+     * BGM片段缓存目录名
+     */
+    public static final String CLIP_DIRECTORY = "clips";
+
+    private FileStorageLayout() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * 文件在上传根目录中的路径
+     *
+     * @param filename 合法的文件名
+     * @return 文件路径
+     */
+    public static Path resolve(String filename) {
+        return resolve(ROOT, filename);
+    }
+
+    /**
+     * 文件在指定根目录中的路径
+     *
+     * @param root     根目录
+     * @param filename 合法的文件名
+     * @return 文件路径
+     */
+    public static Path resolve(Path root, String filename) {
+        if (filename.startsWith(CLIP_PREFIX)) {
+            return root.resolve(CLIP_DIRECTORY).resolve(shard(filename)).resolve(filename);
+        }
+        if (!FileNameValidator.hasDatePrefix(filename)) {
+            return root.resolve(filename);
+        }
+        return root.resolve(filename.substring(0, FileNameValidator.DATE_LENGTH)).resolve(shard(filename)).resolve(filename);
+    }
+
+    /**
+     * 文件所属的分片目录名（两位十六进制）
+     *
+     * @param filename 文件名
+     * @return 分片目录名
+     */
+    public static String shard(String filename) {
+        int dot = filename.indexOf('.');
+        String stem = dot < 0 ? filename : filename.substring(0, dot);
+        // String.hashCode 的算法由规范固定，不同JVM和重启之间结果一致
+        int hash = stem.hashCode();
+        hash ^= hash >>> 16;
+        hash ^= hash >>> 8;
+        return new String(new char[]{
+                Character.forDigit((hash >>> 4) & 0xF, 16),
+                Character.forDigit(hash & 0xF, 16)
+        });
+    }
+
+    /**
+     * 判断是否为写入中的临时文件
+     *
+     * @param filename 文件名
+     * @return 是否为临时文件
+     */
+    public static boolean isTemporary(String filename) {
+        return filename.endsWith(TEMPORARY_SUFFIX);
+    }
+
+    /**
+     * 判断目录名是否为分片目录
+     *
+     * @param name 目录名
+     * @return 是否为分片目录
+     */
+    public static boolean isShardDirectory(String name) {
+        return name.length() == 2 && Character.digit(name.charAt(0), 16) >= 0 && Character.digit(name.charAt(1), 16) >= 0;
+    }
+}
@@ -0,0 +1,26 @@
+package com.yang.video.util.demux;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 可在进程内直接拷贝（无需解码）的音频编码格式
+ */
+@Getter
+@RequiredArgsConstructor
+public enum AudioCodec {
+    /**
+     * AAC，输出为带 ADTS 帧头的 .aac 文件
+     */
+    AAC("aac"),
+
+    /**
+     * MP3，帧本身自带同步头，直接输出为 .mp3 文件
+     */
+    MP3("mp3");
+
+    /**
+     * 输出文件后缀
+     */
+    private final String extension;
+}
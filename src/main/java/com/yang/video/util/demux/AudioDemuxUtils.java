@@ -0,0 +1,126 @@
+package com.yang.video.util.demux;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.text.StrPool;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 进程内音轨提取工具
+ * <p>
+ * 直接解析 MP4/MKV 容器，把音频帧原样拷贝到 .aac/.mp3 文件中，不启动 ffmpeg，也不做解码和重新编码
+ */
+@Slf4j
+public class AudioDemuxUtils {
+
+    /**
+     * 输出缓冲区大小
+     */
+    private static final int OUTPUT_BUFFER_SIZE = 256 * 1024;
+
+    private AudioDemuxUtils() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * 提取视频文件中的第一条音轨
+     *
+     * @param inputVideoFile 输入视频文件
+     * @param outputBasePath 输出音频文件路径（不含后缀），后缀由音频编码决定
+     * @return 提取出的音频文件；如果容器或编码不支持则返回null，由调用方回退到 FFmpeg
+     * @throws IOException 读写文件失败
+     */
+    public static File extractAudio(File inputVideoFile, String outputBasePath) throws IOException {
+        String extension = FileUtil.extName(inputVideoFile);
+        long fileSize = inputVideoFile.length();
+        // 超过2GB的文件无法整体映射，交给 FFmpeg
+        if (fileSize <= 0 || fileSize > Integer.MAX_VALUE) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(inputVideoFile.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            AudioTrack track = parse(buffer, extension);
+            if (track == null) {
+                log.debug("不支持进程内提取音轨: {}", inputVideoFile.getName());
+                return null;
+            }
+
+            File outputAudioFile = FileUtil.newFile(outputBasePath + StrPool.DOT + track.getCodec().getExtension());
+            try {
+                write(buffer, track, outputAudioFile.toPath());
+            } catch (IOException e) {
+                Files.deleteIfExists(outputAudioFile.toPath());
+                throw e;
+            }
+            log.info("BGM extracted in-process: {} frames, codec {}", track.getSampleCount(), track.getCodec());
+            return outputAudioFile;
+        }
+    }
+
+    private static AudioTrack parse(ByteBuffer buffer, String extension) {
+        try {
+            if ("mp4".equalsIgnoreCase(extension)) {
+                return Mp4AudioDemuxer.parse(buffer);
+            }
+            if ("mkv".equalsIgnoreCase(extension)) {
+                return MkvAudioDemuxer.parse(buffer);
+            }
+            return null;
+        } catch (RuntimeException e) {
+            // 越界读取等情况说明文件结构损坏或不符合预期，交给 FFmpeg 处理
+            log.debug("解析容器失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static void write(ByteBuffer buffer, AudioTrack track, Path outputPath) throws IOException {
+        boolean adts = track.getCodec() == AudioCodec.AAC;
+        ByteBuffer source = buffer.duplicate();
+        ByteBuffer output = ByteBuffer.allocateDirect(OUTPUT_BUFFER_SIZE);
+
+        try (FileChannel channel = FileChannel.open(outputPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (int i = 0; i < track.getSampleCount(); i++) {
+                int offset = track.offsetAt(i);
+                int size = track.sizeAt(i);
+                source.limit(offset + size).position(offset);
+
+                int frameLength = adts ? size + AudioTrack.ADTS_HEADER_LENGTH : size;
+                if (output.remaining() < frameLength) {
+                    flush(channel, output);
+                }
+                if (frameLength > output.capacity()) {
+                    // 超大帧直接写出，不经过缓冲区（只会出现在 MP3 中）
+                    writeFully(channel, source);
+                    continue;
+                }
+                if (adts) {
+                    track.putAdtsHeader(output, size);
+                }
+                output.put(source);
+            }
+            flush(channel, output);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer output) throws IOException {
+        output.flip();
+        writeFully(channel, output);
+        output.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.yang.video.util.demux;
+
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 解封装得到的音轨信息：编码格式以及每一帧在源文件中的位置
+ * <p>
+ * 帧位置使用原始 int 数组保存，避免为每一帧创建对象
+ */
+final class AudioTrack {
+    /**
+     * ADTS 帧头长度（无 CRC）
+     */
+    static final int ADTS_HEADER_LENGTH = 7;
+
+    /**
+     * ADTS 帧长度字段为 13 位，帧头加数据不能超过该值
+     */
+    private static final int ADTS_MAX_FRAME_LENGTH = 0x1FFF;
+
+    @Getter
+    private final AudioCodec codec;
+
+    /**
+     * AAC profile（audioObjectType - 1），仅 AAC 使用
+     */
+    private final int aacProfile;
+
+    /**
+     * 采样率索引，仅 AAC 使用
+     */
+    private final int sampleRateIndex;
+
+    /**
+     * 声道配置，仅 AAC 使用
+     */
+    private final int channelConfig;
+
+    private int[] offsets = new int[1024];
+
+    private int[] sizes = new int[1024];
+
+    @Getter
+    private int sampleCount;
+
+    private AudioTrack(AudioCodec codec, int aacProfile, int sampleRateIndex, int channelConfig) {
+        this.codec = codec;
+        this.aacProfile = aacProfile;
+        this.sampleRateIndex = sampleRateIndex;
+        this.channelConfig = channelConfig;
+    }
+
+    /**
+     * 创建 MP3 音轨
+     */
+    static AudioTrack mp3() {
+        return new AudioTrack(AudioCodec.MP3, 0, 0, 0);
+    }
+
+    /**
+     * 根据 AudioSpecificConfig 创建 AAC 音轨
+     *
+     * @param buffer 源数据
+     * @param offset AudioSpecificConfig 起始位置
+     * @param length AudioSpecificConfig 长度
+     * @return AAC 音轨，如果该配置无法用 ADTS 帧头描述则返回 null
+     */
+    static AudioTrack aac(ByteBuffer buffer, int offset, int length) {
+        if (length < 2) {
+            return null;
+        }
+        int b0 = buffer.get(offset) & 0xFF;
+        int b1 = buffer.get(offset + 1) & 0xFF;
+        int objectType = b0 >> 3;
+        int sampleRateIndex = ((b0 & 0x07) << 1) | (b1 >> 7);
+        int channelConfig = (b1 >> 3) & 0x0F;
+
+        // ADTS 帧头只能描述 Main/LC/SSR/LTP、标准采样率表以及 1-7 的声道布局，其余情况交给 FFmpeg
+        if (objectType < 1 || objectType > 4 || sampleRateIndex > 12 || channelConfig < 1 || channelConfig > 7) {
+            return null;
+        }
+        return new AudioTrack(AudioCodec.AAC, objectType - 1, sampleRateIndex, channelConfig);
+    }
+
+    /**
+     * 追加一帧
+     *
+     * @param offset 帧在源文件中的起始位置
+     * @param size   帧长度
+     */
+    void addSample(int offset, int size) {
+        if (sampleCount == offsets.length) {
+            offsets = Arrays.copyOf(offsets, sampleCount << 1);
+            sizes = Arrays.copyOf(sizes, sampleCount << 1);
+        }
+        offsets[sampleCount] = offset;
+        sizes[sampleCount] = size;
+        sampleCount++;
+    }
+
+    int offsetAt(int index) {
+        return offsets[index];
+    }
+
+    int sizeAt(int index) {
+        return sizes[index];
+    }
+
+    /**
+     * 检查帧是否能写入目标格式
+     *
+     * @param size 帧长度
+     * @return 如果可以写入则返回true
+     */
+    boolean isWritable(int size) {
+        return codec != AudioCodec.AAC || size + ADTS_HEADER_LENGTH <= ADTS_MAX_FRAME_LENGTH;
+    }
+
+    /**
+     * 写入 ADTS 帧头（MPEG-4、无 CRC）
+     *
+     * @param out  目标缓冲区
+     * @param size 帧数据长度（不含帧头）
+     */
+    void putAdtsHeader(ByteBuffer out, int size) {
+        int frameLength = size + ADTS_HEADER_LENGTH;
+        out.put((byte) 0xFF);
+        out.put((byte) 0xF1);
+        out.put((byte) ((aacProfile << 6) | (sampleRateIndex << 2) | (channelConfig >> 2)));
+        out.put((byte) (((channelConfig & 0x03) << 6) | (frameLength >> 11)));
+        out.put((byte) (frameLength >> 3));
+        out.put((byte) (((frameLength & 0x07) << 5) | 0x1F));
+        out.put((byte) 0xFC);
+    }
+}
@@ -0,0 +1,333 @@
+package com.yang.video.util.demux;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Matroska（MKV）音轨解封装
+ * <p>
+ * 顺序扫描 EBML 元素：从 Tracks 中找到第一条音轨，再从各 Cluster 的 SimpleBlock/Block 中取出该音轨的帧
+ */
+final class MkvAudioDemuxer {
+
+    private static final int EBML = 0x1A45DFA3;
+    private static final int SEGMENT = 0x18538067;
+    private static final int TRACKS = 0x1654AE6B;
+    private static final int TRACK_ENTRY = 0xAE;
+    private static final int TRACK_NUMBER = 0xD7;
+    private static final int TRACK_TYPE = 0x83;
+    private static final int CODEC_ID = 0x86;
+    private static final int CODEC_PRIVATE = 0x63A2;
+    private static final int CONTENT_ENCODINGS = 0x6D80;
+    private static final int CLUSTER = 0x1F43B675;
+    private static final int BLOCK_GROUP = 0xA0;
+    private static final int BLOCK = 0xA1;
+    private static final int SIMPLE_BLOCK = 0xA3;
+
+    private static final int TRACK_TYPE_AUDIO = 2;
+
+    /**
+     * 未知长度（所有数据位均为1）
+     */
+    private static final long UNKNOWN_SIZE = -1L;
+
+    private static final int LACING_NONE = 0;
+    private static final int LACING_XIPH = 1;
+    private static final int LACING_FIXED = 2;
+    private static final int LACING_EBML = 3;
+
+    private final ByteBuffer buffer;
+
+    private int position;
+
+    private long audioTrackNumber;
+
+    private AudioTrack track;
+
+    private MkvAudioDemuxer(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * 解析第一条音轨
+     *
+     * @param buffer 整个文件的内容
+     * @return 音轨信息，如果没有可直接拷贝的音轨则返回null
+     */
+    static AudioTrack parse(ByteBuffer buffer) {
+        return new MkvAudioDemuxer(buffer).parse();
+    }
+
+    private AudioTrack parse() {
+        int limit = buffer.limit();
+        if (readId() != EBML) {
+            return null;
+        }
+        long headerSize = readSize();
+        if (headerSize == UNKNOWN_SIZE) {
+            return null;
+        }
+        position += (int) headerSize;
+
+        if (readId() != SEGMENT) {
+            return null;
+        }
+        int segmentEnd = end(readSize(), limit);
+        if (segmentEnd < 0) {
+            return null;
+        }
+
+        while (position < segmentEnd) {
+            int id = readId();
+            long size = readSize();
+            int dataEnd = end(size, segmentEnd);
+            if (id < 0 || dataEnd < 0) {
+                return null;
+            }
+            switch (id) {
+                case TRACKS -> {
+                    if (!parseTracks(dataEnd)) {
+                        return null;
+                    }
+                    position = dataEnd;
+                }
+                // Cluster 和 BlockGroup 不跳过，直接在同一个循环里处理其子元素，这样也能兼容未知长度的 Cluster
+                case CLUSTER, BLOCK_GROUP -> {
+                    // 继续读取子元素
+                }
+                case SIMPLE_BLOCK, BLOCK -> {
+                    if (!parseBlock(dataEnd)) {
+                        return null;
+                    }
+                    position = dataEnd;
+                }
+                default -> {
+                    if (size == UNKNOWN_SIZE) {
+                        return null;
+                    }
+                    position = dataEnd;
+                }
+            }
+        }
+        return track != null && track.getSampleCount() > 0 ? track : null;
+    }
+
+    private boolean parseTracks(int end) {
+        while (position < end) {
+            int id = readId();
+            int dataEnd = end(readSize(), end);
+            if (id < 0 || dataEnd < 0) {
+                return false;
+            }
+            if (id == TRACK_ENTRY && track == null) {
+                if (!parseTrackEntry(dataEnd)) {
+                    return false;
+                }
+            }
+            position = dataEnd;
+        }
+        // 没有音轨，或者第一条音轨无法直接拷贝
+        return track != null;
+    }
+
+    private boolean parseTrackEntry(int end) {
+        long number = 0;
+        long type = 0;
+        String codecId = null;
+        int privateStart = -1;
+        int privateLength = 0;
+        boolean encoded = false;
+
+        while (position < end) {
+            int id = readId();
+            long size = readSize();
+            int dataEnd = end(size, end);
+            if (id < 0 || dataEnd < 0) {
+                return false;
+            }
+            switch (id) {
+                case TRACK_NUMBER -> number = readUnsigned(dataEnd);
+                case TRACK_TYPE -> type = readUnsigned(dataEnd);
+                case CODEC_ID -> codecId = readString(dataEnd);
+                case CODEC_PRIVATE -> {
+                    privateStart = position;
+                    privateLength = dataEnd - position;
+                }
+                // 压缩或头部剥离后的帧不能直接拷贝
+                case CONTENT_ENCODINGS -> encoded = true;
+                default -> {
+                    // 忽略其他元素
+                }
+            }
+            position = dataEnd;
+        }
+
+        if (type != TRACK_TYPE_AUDIO) {
+            return true;
+        }
+        if (encoded || number <= 0) {
+            return false;
+        }
+        if ("A_MPEG/L3".equals(codecId)) {
+            track = AudioTrack.mp3();
+        } else if ("A_AAC".equals(codecId) && privateStart >= 0) {
+            track = AudioTrack.aac(buffer, privateStart, privateLength);
+        }
+        audioTrackNumber = number;
+        return track != null;
+    }
+
+    private boolean parseBlock(int end) {
+        if (track == null) {
+            // Tracks 必须出现在第一个 Cluster 之前
+            return false;
+        }
+        if (readVint() != audioTrackNumber) {
+            return true;
+        }
+        // timecode(2) + flags(1)
+        position += 2;
+        int lacing = (buffer.get(position++) >> 1) & 0x03;
+        if (lacing == LACING_NONE) {
+            return addSample(position, end - position);
+        }
+
+        int frameCount = (buffer.get(position++) & 0xFF) + 1;
+        int[] frameSizes = new int[frameCount];
+        int total = 0;
+        if (lacing == LACING_XIPH) {
+            for (int i = 0; i < frameCount - 1; i++) {
+                int b;
+                do {
+                    b = buffer.get(position++) & 0xFF;
+                    frameSizes[i] += b;
+                } while (b == 0xFF);
+                total += frameSizes[i];
+            }
+        } else if (lacing == LACING_EBML) {
+            frameSizes[0] = (int) readVint();
+            total = frameSizes[0];
+            for (int i = 1; i < frameCount - 1; i++) {
+                frameSizes[i] = frameSizes[i - 1] + (int) readSignedVint();
+                total += frameSizes[i];
+            }
+        } else if (lacing == LACING_FIXED) {
+            int payload = end - position;
+            if (payload % frameCount != 0) {
+                return false;
+            }
+            for (int i = 0; i < frameCount - 1; i++) {
+                frameSizes[i] = payload / frameCount;
+                total += frameSizes[i];
+            }
+        }
+        frameSizes[frameCount - 1] = end - position - total;
+
+        int offset = position;
+        for (int frameSize : frameSizes) {
+            if (!addSample(offset, frameSize)) {
+                return false;
+            }
+            offset += frameSize;
+        }
+        return true;
+    }
+
+    private boolean addSample(int offset, int size) {
+        if (size <= 0 || !track.isWritable(size)) {
+            return false;
+        }
+        track.addSample(offset, size);
+        return true;
+    }
+
+    /**
+     * 读取元素ID（保留长度标记位）
+     *
+     * @return 元素ID，非法时返回-1
+     */
+    private int readId() {
+        int first = buffer.get(position) & 0xFF;
+        int length = Integer.numberOfLeadingZeros(first) - 23;
+        if (first == 0 || length > 4) {
+            return -1;
+        }
+        int id = 0;
+        for (int i = 0; i < length; i++) {
+            id = (id << 8) | (buffer.get(position++) & 0xFF);
+        }
+        return id;
+    }
+
+    /**
+     * 读取元素长度
+     *
+     * @return 元素长度，未知长度时返回 {@link #UNKNOWN_SIZE}
+     */
+    private long readSize() {
+        int start = position;
+        long value = readVint();
+        int length = position - start;
+        return value == (1L << (7 * length)) - 1 ? UNKNOWN_SIZE : value;
+    }
+
+    /**
+     * 读取变长整数（去掉长度标记位）
+     */
+    private long readVint() {
+        int first = buffer.get(position++) & 0xFF;
+        int length = Integer.numberOfLeadingZeros(first) - 23;
+        if (first == 0) {
+            throw new IllegalStateException("Invalid EBML vint at " + (position - 1));
+        }
+        long value = first & (0xFF >> length);
+        for (int i = 1; i < length; i++) {
+            value = (value << 8) | (buffer.get(position++) & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * 读取 EBML lacing 中的有符号差值
+     */
+    private long readSignedVint() {
+        int start = position;
+        long value = readVint();
+        int length = position - start;
+        return value - ((1L << (7 * length - 1)) - 1);
+    }
+
+    private long readUnsigned(int end) {
+        long value = 0;
+        for (int i = position; i < end; i++) {
+            value = (value << 8) | (buffer.get(i) & 0xFF);
+        }
+        return value;
+    }
+
+    private String readString(int end) {
+        byte[] bytes = new byte[end - position];
+        buffer.get(position, bytes);
+        int length = bytes.length;
+        // 字符串可能以0填充
+        while (length > 0 && bytes[length - 1] == 0) {
+            length--;
+        }
+        return new String(bytes, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 计算元素结束位置
+     *
+     * @param size      元素长度
+     * @param parentEnd 父元素结束位置，未知长度时以此为准
+     * @return 结束位置，越界时返回-1
+     */
+    private int end(long size, int parentEnd) {
+        if (size == UNKNOWN_SIZE) {
+            return parentEnd;
+        }
+        long end = position + size;
+        return end > parentEnd ? -1 : (int) end;
+    }
+}
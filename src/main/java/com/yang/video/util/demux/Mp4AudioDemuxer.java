@@ -0,0 +1,292 @@
+package com.yang.video.util.demux;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ISO-BMFF（MP4）音轨解封装
+ * <p>
+ * 解析 moov/trak/mdia/minf/stbl，根据 stsz/stsc/stco 计算出每一帧在文件中的位置
+ */
+final class Mp4AudioDemuxer {
+
+    private static final int MOOV = fourCC("moov");
+    private static final int MVEX = fourCC("mvex");
+    private static final int TRAK = fourCC("trak");
+    private static final int MDIA = fourCC("mdia");
+    private static final int HDLR = fourCC("hdlr");
+    private static final int MINF = fourCC("minf");
+    private static final int STBL = fourCC("stbl");
+    private static final int STSD = fourCC("stsd");
+    private static final int STSZ = fourCC("stsz");
+    private static final int STSC = fourCC("stsc");
+    private static final int STCO = fourCC("stco");
+    private static final int CO64 = fourCC("co64");
+    private static final int SOUN = fourCC("soun");
+    private static final int MP4A = fourCC("mp4a");
+    private static final int MP3 = fourCC(".mp3");
+    private static final int ESDS = fourCC("esds");
+    private static final int WAVE = fourCC("wave");
+
+    /**
+     * esds 中的 objectTypeIndication：MPEG-4 AAC 以及 MPEG-2 AAC Main/LC/SSR
+     */
+    private static final int OTI_AAC = 0x40;
+    private static final int OTI_MPEG2_AAC_MAIN = 0x66;
+    private static final int OTI_MPEG2_AAC_SSR = 0x68;
+
+    /**
+     * esds 中的 objectTypeIndication：MPEG-2/MPEG-1 音频（MP3）
+     */
+    private static final int OTI_MPEG2_AUDIO = 0x69;
+    private static final int OTI_MPEG1_AUDIO = 0x6B;
+
+    private Mp4AudioDemuxer() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Box 位置信息
+     *
+     * @param type  Box 类型
+     * @param start 内容起始位置（不含头部）
+     * @param end   Box 结束位置
+     */
+    private record Box(int type, int start, int end) {
+    }
+
+    /**
+     * 解析第一条音轨
+     *
+     * @param buffer 整个文件的内容
+     * @return 音轨信息，如果没有可直接拷贝的音轨则返回null
+     */
+    static AudioTrack parse(ByteBuffer buffer) {
+        Box moov = find(children(buffer, 0, buffer.limit()), MOOV);
+        if (moov == null) {
+            return null;
+        }
+        List<Box> moovChildren = children(buffer, moov.start(), moov.end());
+        // 分片MP4的帧表分散在各个moof中，不在这里处理
+        if (moovChildren == null || find(moovChildren, MVEX) != null) {
+            return null;
+        }
+
+        for (Box trak : moovChildren) {
+            if (trak.type() != TRAK) {
+                continue;
+            }
+            Box mdia = find(children(buffer, trak.start(), trak.end()), MDIA);
+            if (mdia == null) {
+                continue;
+            }
+            List<Box> mdiaChildren = children(buffer, mdia.start(), mdia.end());
+            Box hdlr = find(mdiaChildren, HDLR);
+            // hdlr: version/flags(4) + pre_defined(4) + handler_type(4)
+            if (hdlr == null || buffer.getInt(hdlr.start() + 8) != SOUN) {
+                continue;
+            }
+            Box minf = find(mdiaChildren, MINF);
+            Box stbl = minf == null ? null : find(children(buffer, minf.start(), minf.end()), STBL);
+            // 只处理第一条音轨，与 ffmpeg 默认选择的音频流保持一致
+            return stbl == null ? null : parseSampleTable(buffer, stbl);
+        }
+        return null;
+    }
+
+    private static AudioTrack parseSampleTable(ByteBuffer buffer, Box stbl) {
+        List<Box> boxes = children(buffer, stbl.start(), stbl.end());
+        Box stsd = find(boxes, STSD);
+        Box stsz = find(boxes, STSZ);
+        Box stsc = find(boxes, STSC);
+        Box stco = find(boxes, STCO);
+        Box co64 = find(boxes, CO64);
+        if (stsd == null || stsz == null || stsc == null || (stco == null && co64 == null)) {
+            return null;
+        }
+
+        AudioTrack track = parseSampleDescription(buffer, stsd);
+        if (track == null) {
+            return null;
+        }
+
+        int fixedSize = buffer.getInt(stsz.start() + 4);
+        int sampleCount = buffer.getInt(stsz.start() + 8);
+        int stscCount = buffer.getInt(stsc.start() + 4);
+        Box chunkBox = co64 != null ? co64 : stco;
+        int chunkCount = buffer.getInt(chunkBox.start() + 4);
+        if (sampleCount <= 0 || stscCount <= 0 || chunkCount <= 0) {
+            return null;
+        }
+
+        int sampleIndex = 0;
+        int stscIndex = 0;
+        for (int chunk = 1; chunk <= chunkCount && sampleIndex < sampleCount; chunk++) {
+            // stsc 条目：first_chunk(4) + samples_per_chunk(4) + sample_description_index(4)，first_chunk 从1开始
+            while (stscIndex + 1 < stscCount && buffer.getInt(stsc.start() + 8 + (stscIndex + 1) * 12) <= chunk) {
+                stscIndex++;
+            }
+            int samplesPerChunk = buffer.getInt(stsc.start() + 8 + stscIndex * 12 + 4);
+            long offset = co64 != null
+                    ? buffer.getLong(co64.start() + 8 + (chunk - 1) * 8)
+                    : buffer.getInt(stco.start() + 8 + (chunk - 1) * 4) & 0xFFFFFFFFL;
+
+            for (int i = 0; i < samplesPerChunk && sampleIndex < sampleCount; i++, sampleIndex++) {
+                int size = fixedSize != 0 ? fixedSize : buffer.getInt(stsz.start() + 12 + sampleIndex * 4);
+                if (size <= 0 || offset + size > buffer.limit() || !track.isWritable(size)) {
+                    return null;
+                }
+                track.addSample((int) offset, size);
+                offset += size;
+            }
+        }
+        return sampleIndex == sampleCount ? track : null;
+    }
+
+    private static AudioTrack parseSampleDescription(ByteBuffer buffer, Box stsd) {
+        // stsd: version/flags(4) + entry_count(4)，多个描述的情况交给 FFmpeg
+        if (buffer.getInt(stsd.start() + 4) != 1) {
+            return null;
+        }
+        int entry = stsd.start() + 8;
+        int entryEnd = entry + buffer.getInt(entry);
+        int format = buffer.getInt(entry + 4);
+        if (entryEnd > stsd.end()) {
+            return null;
+        }
+        if (format == MP3) {
+            return AudioTrack.mp3();
+        }
+        if (format != MP4A) {
+            return null;
+        }
+
+        // SampleEntry(8) + AudioSampleEntry(20)，QuickTime 的 version 1/2 分别多出 16/36 字节
+        int version = buffer.getShort(entry + 16) & 0xFFFF;
+        int childrenStart = entry + 36;
+        if (version == 1) {
+            childrenStart += 16;
+        } else if (version == 2) {
+            childrenStart += 36;
+        } else if (version != 0) {
+            return null;
+        }
+
+        List<Box> entryChildren = children(buffer, childrenStart, entryEnd);
+        Box esds = find(entryChildren, ESDS);
+        if (esds == null) {
+            Box wave = find(entryChildren, WAVE);
+            esds = wave == null ? null : find(children(buffer, wave.start(), wave.end()), ESDS);
+        }
+        return esds == null ? null : parseEsds(buffer, esds);
+    }
+
+    private static AudioTrack parseEsds(ByteBuffer buffer, Box esds) {
+        ByteBuffer descriptor = buffer.duplicate();
+        descriptor.limit(esds.end()).position(esds.start() + 4);
+
+        // ES_Descriptor
+        if (descriptor.get() != 0x03) {
+            return null;
+        }
+        readDescriptorLength(descriptor);
+        descriptor.position(descriptor.position() + 2);
+        int flags = descriptor.get() & 0xFF;
+        if ((flags & 0x80) != 0) {
+            descriptor.position(descriptor.position() + 2);
+        }
+        if ((flags & 0x40) != 0) {
+            int urlLength = descriptor.get() & 0xFF;
+            descriptor.position(descriptor.position() + urlLength);
+        }
+        if ((flags & 0x20) != 0) {
+            descriptor.position(descriptor.position() + 2);
+        }
+
+        // DecoderConfigDescriptor
+        if (descriptor.get() != 0x04) {
+            return null;
+        }
+        readDescriptorLength(descriptor);
+        int objectType = descriptor.get() & 0xFF;
+        if (objectType == OTI_MPEG1_AUDIO || objectType == OTI_MPEG2_AUDIO) {
+            return AudioTrack.mp3();
+        }
+        boolean aac = objectType == OTI_AAC || (objectType >= OTI_MPEG2_AAC_MAIN && objectType <= OTI_MPEG2_AAC_SSR);
+        if (!aac) {
+            return null;
+        }
+        // streamType(1) + bufferSizeDB(3) + maxBitrate(4) + avgBitrate(4)
+        descriptor.position(descriptor.position() + 12);
+
+        // DecoderSpecificInfo，即 AudioSpecificConfig
+        if (descriptor.get() != 0x05) {
+            return null;
+        }
+        int length = readDescriptorLength(descriptor);
+        return AudioTrack.aac(buffer, descriptor.position(), Math.min(length, descriptor.remaining()));
+    }
+
+    /**
+     * 读取描述符长度（每字节7位，最高位为续位标志，最多4字节）
+     */
+    private static int readDescriptorLength(ByteBuffer descriptor) {
+        int length = 0;
+        for (int i = 0; i < 4; i++) {
+            int b = descriptor.get() & 0xFF;
+            length = (length << 7) | (b & 0x7F);
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * 列出 [start, end) 范围内的所有 Box
+     *
+     * @return Box 列表，结构损坏时返回null
+     */
+    private static List<Box> children(ByteBuffer buffer, int start, int end) {
+        List<Box> boxes = new ArrayList<>();
+        int position = start;
+        while (position + 8 <= end) {
+            long size = buffer.getInt(position) & 0xFFFFFFFFL;
+            int type = buffer.getInt(position + 4);
+            int header = 8;
+            if (size == 1) {
+                if (position + 16 > end) {
+                    return null;
+                }
+                size = buffer.getLong(position + 8);
+                header = 16;
+            } else if (size == 0) {
+                // 长度为0表示一直延伸到文件（或父 Box）末尾
+                size = (long) end - position;
+            }
+            if (size < header || position + size > end) {
+                return null;
+            }
+            boxes.add(new Box(type, position + header, (int) (position + size)));
+            position += (int) size;
+        }
+        return boxes;
+    }
+
+    private static Box find(List<Box> boxes, int type) {
+        if (boxes == null) {
+            return null;
+        }
+        for (Box box : boxes) {
+            if (box.type() == type) {
+                return box;
+            }
+        }
+        return null;
+    }
+
+    private static int fourCC(String type) {
+        return (type.charAt(0) << 24) | (type.charAt(1) << 16) | (type.charAt(2) << 8) | type.charAt(3);
+    }
+}
@@ -0,0 +1,158 @@
+package com.yang.video.util.waveform;
+
+import java.util.Arrays;
+
+/**
+ * 综合响度计算（ITU-R BS.1770-4）
+ * <p>
+ * 对输入做 K 加权滤波，每 100ms 统计一次均方值，按 400ms 块（75% 重叠）进行 -70 LUFS 绝对门限和 -10 LU 相对门限计算。
+ * 滤波系数针对 48kHz 采样率，调用方需保证输入为 48kHz
+ */
+final class LoudnessMeter {
+
+    /**
+     * 绝对门限（LUFS）
+     */
+    private static final double ABSOLUTE_GATE = -70.0;
+
+    /**
+     * 相对门限（LU）
+     */
+    private static final double RELATIVE_GATE = -10.0;
+
+    /**
+     * 每个门限块包含的 100ms 分段数
+     */
+    private static final int SEGMENTS_PER_BLOCK = 4;
+
+    // K 加权第一级：高频搁架滤波器
+    private static final double SHELF_B0 = 1.53512485958697;
+    private static final double SHELF_B1 = -2.69169618940638;
+    private static final double SHELF_B2 = 1.19839281085285;
+    private static final double SHELF_A1 = -1.69065929318241;
+    private static final double SHELF_A2 = 0.73248077421585;
+
+    // K 加权第二级：高通滤波器
+    private static final double HIGH_PASS_B0 = 1.0;
+    private static final double HIGH_PASS_B1 = -2.0;
+    private static final double HIGH_PASS_B2 = 1.0;
+    private static final double HIGH_PASS_A1 = -1.99004745483398;
+    private static final double HIGH_PASS_A2 = 0.99007225036621;
+
+    private final int channels;
+
+    private final int segmentFrames;
+
+    /**
+     * 每个声道两级滤波器的状态（直接II型转置，每级2个状态）
+     */
+    private final double[] filterState;
+
+    /**
+     * 当前分段内每个声道的平方和
+     */
+    private final double[] segmentSquares;
+
+    private int segmentFrameCount;
+
+    /**
+     * 已完成的 100ms 分段均方值（已按声道求和）
+     */
+    private double[] segments = new double[1024];
+
+    private int segmentCount;
+
+    LoudnessMeter(int sampleRate, int channels) {
+        this.channels = channels;
+        this.segmentFrames = sampleRate / 10;
+        this.filterState = new double[channels * 4];
+        this.segmentSquares = new double[channels];
+    }
+
+    /**
+     * 输入一个样本
+     *
+     * @param channel 声道
+     * @param sample  归一化到 [-1, 1) 的样本值
+     */
+    void accept(int channel, double sample) {
+        int state = channel * 4;
+        double shelf = SHELF_B0 * sample + filterState[state];
+        filterState[state] = SHELF_B1 * sample - SHELF_A1 * shelf + filterState[state + 1];
+        filterState[state + 1] = SHELF_B2 * sample - SHELF_A2 * shelf;
+
+        double weighted = HIGH_PASS_B0 * shelf + filterState[state + 2];
+        filterState[state + 2] = HIGH_PASS_B1 * shelf - HIGH_PASS_A1 * weighted + filterState[state + 3];
+        filterState[state + 3] = HIGH_PASS_B2 * shelf - HIGH_PASS_A2 * weighted;
+
+        segmentSquares[channel] += weighted * weighted;
+    }
+
+    /**
+     * 一帧（所有声道的一个样本）输入完毕
+     */
+    void endFrame() {
+        if (++segmentFrameCount < segmentFrames) {
+            return;
+        }
+        double power = 0;
+        for (int channel = 0; channel < channels; channel++) {
+            // 左右声道权重均为 1.0
+            power += segmentSquares[channel] / segmentFrames;
+            segmentSquares[channel] = 0;
+        }
+        if (segmentCount == segments.length) {
+            segments = Arrays.copyOf(segments, segmentCount << 1);
+        }
+        segments[segmentCount++] = power;
+        segmentFrameCount = 0;
+    }
+
+    /**
+     * 计算综合响度
+     *
+     * @return 综合响度（LUFS），时长不足 400ms 或全部低于门限时返回负无穷
+     */
+    float integratedLoudness() {
+        double absoluteSum = 0;
+        int absoluteCount = 0;
+        for (int i = SEGMENTS_PER_BLOCK - 1; i < segmentCount; i++) {
+            double power = blockPower(i);
+            if (loudness(power) > ABSOLUTE_GATE) {
+                absoluteSum += power;
+                absoluteCount++;
+            }
+        }
+        if (absoluteCount == 0) {
+            return Float.NEGATIVE_INFINITY;
+        }
+
+        double relativeGate = loudness(absoluteSum / absoluteCount) + RELATIVE_GATE;
+        double gatedSum = 0;
+        int gatedCount = 0;
+        for (int i = SEGMENTS_PER_BLOCK - 1; i < segmentCount; i++) {
+            double power = blockPower(i);
+            double loudness = loudness(power);
+            if (loudness > ABSOLUTE_GATE && loudness > relativeGate) {
+                gatedSum += power;
+                gatedCount++;
+            }
+        }
+        return gatedCount == 0 ? Float.NEGATIVE_INFINITY : (float) loudness(gatedSum / gatedCount);
+    }
+
+    /**
+     * 以第 last 个分段结尾的 400ms 块的均方值
+     */
+    private double blockPower(int last) {
+        double sum = 0;
+        for (int i = last - SEGMENTS_PER_BLOCK + 1; i <= last; i++) {
+            sum += segments[i];
+        }
+        return sum / SEGMENTS_PER_BLOCK;
+    }
+
+    private static double loudness(double power) {
+        return -0.691 + 10 * Math.log10(power);
+    }
+}
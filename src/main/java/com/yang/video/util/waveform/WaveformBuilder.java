@@ -0,0 +1,188 @@
+package com.yang.video.util.waveform;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * 波形摘要构建器
+ * <p>
+ * 一次遍历16位PCM数据，同时计算多级（逐级放大4倍）的峰值/RMS波形和综合响度，全程只使用原始类型数组，不为单个样本分配对象。
+ * <p>
+ * 输出格式（小端序）：
+ * <pre>
+ * 头部   4 字节 ASCII magic "VTWF"、short 版本、short 声道数、int 采样率、long 总帧数、
+ *        float 综合响度(LUFS)、float 采样峰值(dBFS)、short 级别数、short 保留
+ * 级别表 每级 int 每个点包含的帧数、int 点数、long 数据偏移
+ * 数据   每个点 3 字节：byte 最小值、byte 最大值、unsigned byte RMS
+ * </pre>
+ * 客户端可以先读取头部和级别表，再按偏移用 Range 请求只下载需要的缩放级别
+ */
+final class WaveformBuilder {
+
+    /**
+     * 文件标识，按字节原样写入，不受字节序影响
+     */
+    static final byte[] MAGIC = {'V', 'T', 'W', 'F'};
+
+    static final short VERSION = 1;
+
+    /**
+     * 最细级别每个点包含的帧数（48kHz 下为 10ms）
+     */
+    static final int BASE_FRAMES_PER_BIN = 480;
+
+    /**
+     * 相邻级别之间的缩放倍数
+     */
+    static final int LEVEL_FACTOR = 4;
+
+    static final int LEVEL_COUNT = 5;
+
+    static final int BYTES_PER_BIN = 3;
+
+    private static final int HEADER_SIZE = 32;
+
+    private static final int LEVEL_ENTRY_SIZE = 16;
+
+    private final int sampleRate;
+
+    private final int channels;
+
+    private final LoudnessMeter loudnessMeter;
+
+    private final byte[][] levelData = new byte[LEVEL_COUNT][];
+
+    private final int[] levelBins = new int[LEVEL_COUNT];
+
+    // 每一级正在累积的点：最小值、最大值、平方和、已累积的帧数（第0级）或点数（其他级）
+    private final int[] binMin = new int[LEVEL_COUNT];
+    private final int[] binMax = new int[LEVEL_COUNT];
+    private final double[] binSquares = new double[LEVEL_COUNT];
+    private final long[] binFrames = new long[LEVEL_COUNT];
+    private final int[] binCount = new int[LEVEL_COUNT];
+
+    private long frames;
+
+    private int peak;
+
+    WaveformBuilder(int sampleRate, int channels) {
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.loudnessMeter = new LoudnessMeter(sampleRate, channels);
+        for (int level = 0; level < LEVEL_COUNT; level++) {
+            levelData[level] = new byte[BYTES_PER_BIN * 1024];
+            resetBin(level);
+        }
+    }
+
+    /**
+     * 输入交错排列的16位小端PCM数据
+     *
+     * @param data   数据
+     * @param length 有效长度，必须是整帧
+     */
+    void accept(byte[] data, int length) {
+        int frameBytes = channels * 2;
+        for (int offset = 0; offset + frameBytes <= length; offset += frameBytes) {
+            int mixed = 0;
+            for (int channel = 0; channel < channels; channel++) {
+                int index = offset + channel * 2;
+                int sample = (short) ((data[index] & 0xFF) | (data[index + 1] << 8));
+                loudnessMeter.accept(channel, sample / 32768.0);
+                peak = Math.max(peak, Math.abs(sample));
+                mixed += sample;
+            }
+            loudnessMeter.endFrame();
+            mixed /= channels;
+
+            binMin[0] = Math.min(binMin[0], mixed);
+            binMax[0] = Math.max(binMax[0], mixed);
+            binSquares[0] += (double) mixed * mixed;
+            binFrames[0]++;
+            if (++binCount[0] == BASE_FRAMES_PER_BIN) {
+                emit(0);
+            }
+            frames++;
+        }
+    }
+
+    /**
+     * 输出波形摘要
+     *
+     * @return 完整的摘要文件内容
+     */
+    byte[] build() {
+        // 从最细级别开始依次输出未满的点，每一级的结果会合并到下一级
+        for (int level = 0; level < LEVEL_COUNT; level++) {
+            if (binCount[level] > 0) {
+                emit(level);
+            }
+        }
+
+        int dataOffset = HEADER_SIZE + LEVEL_ENTRY_SIZE * LEVEL_COUNT;
+        int totalSize = dataOffset;
+        for (int level = 0; level < LEVEL_COUNT; level++) {
+            totalSize += levelBins[level] * BYTES_PER_BIN;
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(totalSize).order(ByteOrder.LITTLE_ENDIAN);
+        out.put(MAGIC)
+                .putShort(VERSION)
+                .putShort((short) channels)
+                .putInt(sampleRate)
+                .putLong(frames)
+                .putFloat(loudnessMeter.integratedLoudness())
+                .putFloat(peak == 0 ? Float.NEGATIVE_INFINITY : (float) (20 * Math.log10(peak / 32768.0)))
+                .putShort((short) LEVEL_COUNT)
+                .putShort((short) 0);
+
+        int framesPerBin = BASE_FRAMES_PER_BIN;
+        for (int level = 0; level < LEVEL_COUNT; level++) {
+            out.putInt(framesPerBin).putInt(levelBins[level]).putLong(dataOffset);
+            dataOffset += levelBins[level] * BYTES_PER_BIN;
+            framesPerBin *= LEVEL_FACTOR;
+        }
+        for (int level = 0; level < LEVEL_COUNT; level++) {
+            out.put(levelData[level], 0, levelBins[level] * BYTES_PER_BIN);
+        }
+        return out.array();
+    }
+
+    /**
+     * 输出当前级别正在累积的点，并合并到下一级
+     */
+    private void emit(int level) {
+        byte[] data = levelData[level];
+        int position = levelBins[level] * BYTES_PER_BIN;
+        if (position + BYTES_PER_BIN > data.length) {
+            data = Arrays.copyOf(data, data.length << 1);
+            levelData[level] = data;
+        }
+        int rms = (int) Math.round(Math.sqrt(binSquares[level] / binFrames[level]));
+        data[position] = (byte) (binMin[level] >> 8);
+        data[position + 1] = (byte) (binMax[level] >> 8);
+        data[position + 2] = (byte) Math.min(255, rms >> 7);
+        levelBins[level]++;
+
+        int next = level + 1;
+        if (next < LEVEL_COUNT) {
+            binMin[next] = Math.min(binMin[next], binMin[level]);
+            binMax[next] = Math.max(binMax[next], binMax[level]);
+            binSquares[next] += binSquares[level];
+            binFrames[next] += binFrames[level];
+            if (++binCount[next] == LEVEL_FACTOR) {
+                emit(next);
+            }
+        }
+        resetBin(level);
+    }
+
+    private void resetBin(int level) {
+        binMin[level] = Integer.MAX_VALUE;
+        binMax[level] = Integer.MIN_VALUE;
+        binSquares[level] = 0;
+        binFrames[level] = 0;
+        binCount[level] = 0;
+    }
+}
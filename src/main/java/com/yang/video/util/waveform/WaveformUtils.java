@@ -0,0 +1,136 @@
+package com.yang.video.util.waveform;
+
+import com.yang.video.util.FFmpegJobBudget;
+import com.yang.video.util.FFmpegUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 波形摘要工具类
+ * <p>
+ * 将BGM解码为PCM后流式生成波形摘要（.wfm），前端只需下载几KB的摘要即可绘制波形，无需下载并解码整个音频
+ */
+@Slf4j
+public class WaveformUtils {
+
+    /**
+     * 波形摘要文件后缀
+     */
+    public static final String EXTENSION = "wfm";
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private WaveformUtils() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * 生成波形摘要文件
+     *
+     * @param inputAudioFile 输入音频文件
+     * @param summaryFile    输出的波形摘要文件
+     * @param budget         解码使用的资源预算
+     */
+    public static void generate(File inputAudioFile, File summaryFile, FFmpegJobBudget budget) throws IOException, InterruptedException {
+        Process process = FFmpegUtils.decodeToWav(inputAudioFile, budget);
+        WaveformBuilder builder;
+        try (InputStream in = new BufferedInputStream(process.getInputStream(), READ_BUFFER_SIZE)) {
+            int[] format = readWavHeader(in);
+            int sampleRate = format[0];
+            int channels = format[1];
+            builder = new WaveformBuilder(sampleRate, channels);
+
+            int frameBytes = channels * 2;
+            byte[] buffer = new byte[READ_BUFFER_SIZE];
+            int pending = 0;
+            int read;
+            while ((read = in.read(buffer, pending, buffer.length - pending)) != -1) {
+                int available = pending + read;
+                int usable = available - available % frameBytes;
+                builder.accept(buffer, usable);
+                // 不足一帧的剩余字节移到缓冲区开头，与下一次读取的数据拼接
+                pending = available - usable;
+                System.arraycopy(buffer, usable, buffer, 0, pending);
+            }
+        } catch (IOException e) {
+            // 停止读取后ffmpeg会阻塞在写标准输出上，直接结束进程
+            process.destroyForcibly();
+            throw e;
+        } finally {
+            if (!process.waitFor(10L, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+
+        if (process.isAlive() || process.exitValue() != 0) {
+            throw new IOException("FFmpeg decode failed: " + inputAudioFile.getName());
+        }
+        Files.write(summaryFile.toPath(), builder.build());
+        log.info("Waveform summary generated: {}", summaryFile.getName());
+    }
+
+    /**
+     * 读取WAV头部，定位到data块
+     *
+     * @return 采样率和声道数
+     */
+    private static int[] readWavHeader(InputStream in) throws IOException {
+        byte[] riff = readFully(in, 12);
+        if (!"RIFF".equals(fourCC(riff, 0)) || !"WAVE".equals(fourCC(riff, 8))) {
+            throw new IOException("Invalid WAV stream");
+        }
+
+        int sampleRate = 0;
+        int channels = 0;
+        while (true) {
+            byte[] chunk = readFully(in, 8);
+            String id = fourCC(chunk, 0);
+            long size = littleEndianInt(chunk, 4) & 0xFFFFFFFFL;
+            if ("data".equals(id)) {
+                // 通过管道输出时data块长度未知，直接读到流结束
+                break;
+            }
+            if ("fmt ".equals(id)) {
+                byte[] fmt = readFully(in, (int) size);
+                int bitsPerSample = (fmt[14] & 0xFF) | (fmt[15] & 0xFF) << 8;
+                if (bitsPerSample != 16) {
+                    throw new IOException("Unsupported WAV bits per sample: " + bitsPerSample);
+                }
+                channels = (fmt[2] & 0xFF) | (fmt[3] & 0xFF) << 8;
+                sampleRate = littleEndianInt(fmt, 4);
+                // 块长度为奇数时有一个填充字节
+                in.skipNBytes(size & 1);
+            } else {
+                in.skipNBytes(size + (size & 1));
+            }
+        }
+        if (sampleRate <= 0 || channels <= 0) {
+            throw new IOException("Missing WAV fmt chunk");
+        }
+        return new int[]{sampleRate, channels};
+    }
+
+    private static byte[] readFully(InputStream in, int length) throws IOException {
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length != length) {
+            throw new IOException("Unexpected end of WAV stream");
+        }
+        return bytes;
+    }
+
+    private static String fourCC(byte[] bytes, int offset) {
+        return new String(bytes, offset, 4, StandardCharsets.US_ASCII);
+    }
+
+    private static int littleEndianInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8
+                | (bytes[offset + 2] & 0xFF) << 16 | (bytes[offset + 3] & 0xFF) << 24;
+    }
+}
@@ -0,0 +1,34 @@
+package com.yang.video.dto;
+
+import com.yang.video.exception.ServiceException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeRangeTests {
+
+    @Test
+    void parsesSingleAndMultipleRanges() {
+        List<TimeRange> ranges = TimeRange.parse(30.0, 15.0, "60-90, 95.5-125.5");
+
+        assertEquals(List.of(new TimeRange(30, 15), new TimeRange(60, 30), new TimeRange(95.5, 30)), ranges);
+        assertEquals("30000-15000", ranges.get(0).key());
+        assertEquals("95500-30000", ranges.get(2).key());
+        assertEquals("10000-end", TimeRange.parse(10.0, null, null).get(0).key());
+        assertTrue(TimeRange.parse(null, null, " ").isEmpty());
+    }
+
+    @Test
+    void rejectsInvalidRanges() {
+        assertThrows(ServiceException.class, () -> TimeRange.parse(null, null, "60-30"));
+        assertThrows(ServiceException.class, () -> TimeRange.parse(null, null, "a-b"));
+        assertThrows(ServiceException.class, () -> TimeRange.parse(null, null, "-5-10"));
+        assertThrows(ServiceException.class, () -> TimeRange.parse(-1.0, 10.0, null));
+        assertThrows(ServiceException.class, () -> TimeRange.parse(0.0, Double.NaN, null));
+        assertThrows(ServiceException.class, () -> TimeRange.parse(null, null, "0-1,1-2,2-3,3-4,4-5,5-6,6-7,7-8,8-9,9-10,10-11"));
+    }
+}
@@ -0,0 +1,67 @@
+package com.yang.video.load;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * 压测参数，通过系统属性配置，例如 {@code -Dload.rate=2 -Dload.duration=PT5M}
+ *
+ * @param arrivalRate         每秒到达的请求数（开放模型，与响应快慢无关）
+ * @param poisson             是否按泊松过程到达，否则为固定间隔
+ * @param downloadRatio       下载请求占比
+ * @param warmup              预热时长，预热期间的结果不计入报告
+ * @param duration            统计时长
+ * @param videoSeconds        合成视频的时长（秒），上传时轮流使用
+ * @param sampleInterval      资源采样间隔
+ * @param sloUploadP99Millis  上传 p99 延迟目标（毫秒）
+ * @param sloDownloadP99Millis 下载 p99 延迟目标（毫秒）
+ * @param sloMaxErrorRate     非2xx响应占比上限
+ * @param enforceSlo          未达到 SLO 时是否让测试失败
+ * @param maxFdGrowth         浸泡测试允许的文件句柄增长
+ */
+record LoadProfile(double arrivalRate,
+                   boolean poisson,
+                   double downloadRatio,
+                   Duration warmup,
+                   Duration duration,
+                   int[] videoSeconds,
+                   Duration sampleInterval,
+                   long sloUploadP99Millis,
+                   long sloDownloadP99Millis,
+                   double sloMaxErrorRate,
+                   boolean enforceSlo,
+                   long maxFdGrowth) {
+
+    /**
+     * 普通压测的默认参数
+     */
+    static LoadProfile load() {
+        return fromSystemProperties(Duration.ofSeconds(10), Duration.ofMinutes(1));
+    }
+
+    /**
+     * 浸泡测试的默认参数：较低速率、长时间运行
+     */
+    static LoadProfile soak() {
+        return fromSystemProperties(Duration.ofSeconds(30), Duration.ofMinutes(30));
+    }
+
+    private static LoadProfile fromSystemProperties(Duration defaultWarmup, Duration defaultDuration) {
+        return new LoadProfile(
+                Double.parseDouble(System.getProperty("load.rate", "1")),
+                Boolean.parseBoolean(System.getProperty("load.poisson", "true")),
+                Double.parseDouble(System.getProperty("load.downloadRatio", "0.5")),
+                Duration.parse(System.getProperty("load.warmup", defaultWarmup.toString())),
+                Duration.parse(System.getProperty("load.duration", defaultDuration.toString())),
+                Arrays.stream(System.getProperty("load.videoSeconds", "5,30,90").split(","))
+                        .map(String::trim)
+                        .mapToInt(Integer::parseInt)
+                        .toArray(),
+                Duration.parse(System.getProperty("load.sampleInterval", "PT1S")),
+                Long.parseLong(System.getProperty("load.slo.uploadP99Millis", "30000")),
+                Long.parseLong(System.getProperty("load.slo.downloadP99Millis", "500")),
+                Double.parseDouble(System.getProperty("load.slo.maxErrorRate", "0.01")),
+                Boolean.parseBoolean(System.getProperty("load.slo.enforce", "false")),
+                Long.parseLong(System.getProperty("load.soak.maxFdGrowth", "50")));
+    }
+}
@@ -0,0 +1,118 @@
+package com.yang.video.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 压测报告：延迟分位数、吞吐量、按状态码的错误率、资源使用以及 SLO 达成情况
+ * <p>
+ * 报告同时输出到日志和 target/load-reports 目录下的 JSON 文件
+ */
+@Slf4j
+final class LoadReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final Map<String, Object> content = new LinkedHashMap<>();
+
+    private final List<String> sloViolations = new ArrayList<>();
+
+    LoadReport(String mode, LoadProfile profile, Duration elapsed, ResourceSampler sampler, long uploadBytesWritten,
+               OperationStats upload, OperationStats extraction, OperationStats download) {
+        content.put("mode", mode);
+        content.put("profile", profile);
+        content.put("elapsedSeconds", elapsed.toMillis() / 1000.0);
+
+        Map<String, Object> operationReports = new LinkedHashMap<>();
+        for (OperationStats operation : List.of(upload, extraction, download)) {
+            operationReports.put(operation.name(), operationReport(operation, elapsed));
+        }
+        content.put("operations", operationReports);
+
+        Map<String, Object> resources = new LinkedHashMap<>();
+        resources.put("jvmCpuCores", sampler.jvmCpuCores());
+        resources.put("processCpuLoadAvg", sampler.averageCpuLoad());
+        resources.put("processCpuLoadMax", sampler.maxCpuLoad());
+        resources.put("systemCpuLoadAvg", sampler.averageSystemCpuLoad());
+        resources.put("systemCpuLoadMax", sampler.maxSystemCpuLoad());
+        resources.put("ffmpegProcessesMax", sampler.maxFfmpegProcesses());
+        resources.put("openFileDescriptorsMax", sampler.maxOpenFileDescriptors());
+        resources.put("uploadBytesWritten", uploadBytesWritten);
+        resources.put("uploadBytesPerSecond", uploadBytesWritten * 1000.0 / Math.max(1, elapsed.toMillis()));
+        content.put("resources", resources);
+
+        checkSlo(upload, profile.sloUploadP99Millis(), profile.sloMaxErrorRate());
+        // 提取耗时取决于视频时长，只检查失败率
+        checkSlo(extraction, Long.MAX_VALUE, profile.sloMaxErrorRate());
+        checkSlo(download, profile.sloDownloadP99Millis(), profile.sloMaxErrorRate());
+        content.put("sloViolations", sloViolations);
+    }
+
+    private static Map<String, Object> operationReport(OperationStats operation, Duration elapsed) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("requests", operation.total());
+        report.put("throughputPerSecond", operation.successes() * 1000.0 / Math.max(1, elapsed.toMillis()));
+        report.put("errorRate", operation.errorRate());
+        report.put("statusCounts", operation.statusCounts());
+        report.put("transportErrors", operation.transportErrors());
+        report.put("failures", operation.failures());
+
+        Map<String, Double> latency = new LinkedHashMap<>();
+        for (double percentile : PERCENTILES) {
+            latency.put("p" + percentile, operation.latency().percentile(percentile) / 1000.0);
+        }
+        latency.put("max", operation.latency().max() / 1000.0);
+        report.put("latencyMillis", latency);
+        return report;
+    }
+
+    private void checkSlo(OperationStats operation, long p99Millis, double maxErrorRate) {
+        if (operation.total() == 0) {
+            return;
+        }
+        double actualP99 = operation.latency().percentile(99) / 1000.0;
+        if (actualP99 > p99Millis) {
+            sloViolations.add(String.format("%s p99 %.1fms > %dms", operation.name(), actualP99, p99Millis));
+        }
+        if (operation.errorRate() > maxErrorRate) {
+            sloViolations.add(String.format("%s error rate %.4f > %.4f", operation.name(), operation.errorRate(), maxErrorRate));
+        }
+    }
+
+    List<String> sloViolations() {
+        return sloViolations;
+    }
+
+    /**
+     * 输出报告
+     *
+     * @return JSON 报告文件路径
+     */
+    Path write() throws IOException {
+        String json = new ObjectMapper()
+                .findAndRegisterModules()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .disable(SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+                .writeValueAsString(content);
+        log.info("压测报告:\n{}", json);
+
+        Path directory = Path.of("target", "load-reports");
+        Files.createDirectories(directory);
+        Path file = directory.resolve(content.get("mode") + "-"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json");
+        Files.writeString(file, json);
+        return file;
+    }
+}
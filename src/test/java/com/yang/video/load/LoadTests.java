@@ -0,0 +1,152 @@
+package com.yang.video.load;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.text.StrPool;
+import com.yang.video.service.FileIndexService;
+import com.yang.video.util.FileNameValidator;
+import com.yang.video.util.FileStorageLayout;
+import com.yang.video.util.waveform.WaveformUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 压测与浸泡测试
+ * <p>
+ * 默认构建不执行，分别通过 {@code mvn test -Pload-test} 和 {@code mvn test -Psoak-test} 运行，
+ * 参数见 {@link LoadProfile}，报告写入 target/load-reports
+ */
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class LoadTests {
+
+    private static final File UPLOAD_DIRECTORY = FileStorageLayout.ROOT.toFile();
+
+    /**
+     * 上传产生的文件后缀：视频、BGM（aac/mp3）和波形摘要
+     */
+    private static final List<String> UPLOAD_EXTENSIONS = uploadExtensions();
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    FileIndexService fileIndexService;
+
+    @TempDir
+    Path videoDirectory;
+
+    @BeforeEach
+    void requireFfmpeg() {
+        assumeTrue(SyntheticVideos.ffmpegAvailable(), "ffmpeg 不可用，跳过压测");
+    }
+
+    @Test
+    @Tag("load")
+    void load() throws Exception {
+        LoadProfile profile = LoadProfile.load();
+        LoadReport report = run("load", profile);
+
+        if (profile.enforceSlo()) {
+            assertTrue(report.sloViolations().isEmpty(), () -> "SLO violated: " + report.sloViolations());
+        }
+    }
+
+    /**
+     * 长时间低速运行，结束后检查 ffmpeg 进程和文件句柄是否泄漏
+     */
+    @Test
+    @Tag("soak")
+    void soak() throws Exception {
+        LoadProfile profile = LoadProfile.soak();
+        long fdBefore = ResourceSampler.openFileDescriptorCount();
+
+        LoadReport report = run("soak", profile);
+
+        // 所有请求和提取都已结束，ffmpeg 子进程应当全部退出
+        assertEquals(0, ResourceSampler.ffmpegProcessCount(), "leaked ffmpeg processes");
+
+        long fdAfter = ResourceSampler.openFileDescriptorCount();
+        log.info("文件句柄: 压测前 {}，压测后 {}", fdBefore, fdAfter);
+        if (fdBefore >= 0) {
+            assertTrue(fdAfter - fdBefore <= profile.maxFdGrowth(),
+                    () -> "leaked file descriptors: " + fdBefore + " -> " + fdAfter);
+        }
+        if (profile.enforceSlo()) {
+            assertTrue(report.sloViolations().isEmpty(), () -> "SLO violated: " + report.sloViolations());
+        }
+    }
+
+    private LoadReport run(String mode, LoadProfile profile) throws Exception {
+        List<SyntheticVideos.Video> videos = SyntheticVideos.generate(videoDirectory, profile.videoSeconds());
+        OperationStats upload = new OperationStats("upload");
+        OperationStats extraction = new OperationStats("extraction");
+        OperationStats download = new OperationStats("download");
+        long uploadBytesBefore = FileUtil.size(UPLOAD_DIRECTORY);
+
+        LoadReport report;
+        List<String> uploaded;
+        try (OpenLoopLoadGenerator generator = new OpenLoopLoadGenerator(URI.create("http://127.0.0.1:" + port), videos, profile)) {
+            ResourceSampler sampler = new ResourceSampler(profile.sampleInterval().toMillis());
+            Duration elapsed;
+            // 采样器在统计结束时关闭，之后只读取采样结果
+            try (sampler) {
+                elapsed = generator.run(upload, extraction, download);
+            }
+            uploaded = generator.uploaded();
+            report = new LoadReport(mode, profile, elapsed, sampler,
+                    FileUtil.size(UPLOAD_DIRECTORY) - uploadBytesBefore, upload, extraction, download);
+        }
+        log.info("压测报告已写入: {}", report.write());
+
+        // 提取结束后波形摘要仍在后台生成，等待其完成再清理，避免清理后又登记新文件
+        awaitFfmpegExit();
+        cleanUp(uploaded);
+        return report;
+    }
+
+    private static void awaitFfmpegExit() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + Duration.ofSeconds(30).toMillis();
+        while (ResourceSampler.ffmpegProcessCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(500);
+        }
+    }
+
+    /**
+     * 通过索引删除压测上传的视频及其 BGM、波形摘要，使共享的 Spring 上下文中不残留失效的索引条目
+     */
+    private void cleanUp(List<String> uploaded) {
+        for (String filename : uploaded) {
+            for (String extension : UPLOAD_EXTENSIONS) {
+                try {
+                    fileIndexService.delete(filename + StrPool.DOT + extension);
+                } catch (IOException e) {
+                    log.warn("清理压测文件失败 {}.{}: {}", filename, extension, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static List<String> uploadExtensions() {
+        List<String> extensions = new ArrayList<>(FileNameValidator.VIDEO_EXTENSIONS);
+        extensions.addAll(List.of("aac", "mp3", WaveformUtils.EXTENSION));
+        return extensions;
+    }
+}
@@ -0,0 +1,225 @@
+package com.yang.video.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 开放模型压测驱动
+ * <p>
+ * 请求按设定的到达速率发出，不等待上一个请求完成。每个请求的延迟从计划发出时间开始计算，
+ * 即使驱动线程本身被拖慢，排队时间也会计入延迟，避免协调遗漏（coordinated omission）低估尾延迟
+ */
+@Slf4j
+final class OpenLoopLoadGenerator implements AutoCloseable {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(5);
+
+    private static final String BOUNDARY = "----load-" + UUID.randomUUID();
+
+    /**
+     * 查询提取状态的间隔
+     */
+    private static final Duration STATUS_POLL_INTERVAL = Duration.ofMillis(500);
+
+    private final URI baseUri;
+
+    /**
+     * 预先拼好的上传请求体，与合成视频一一对应
+     */
+    private final List<byte[]> uploadBodies;
+
+    private final LoadProfile profile;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 已上传成功、可供下载的 BGM 文件名
+     */
+    private final List<String> downloadable = new CopyOnWriteArrayList<>();
+
+    /**
+     * 本次压测上传产生的文件名（不含后缀），用于结束后清理
+     */
+    private final List<String> uploaded = new CopyOnWriteArrayList<>();
+
+    OpenLoopLoadGenerator(URI baseUri, List<SyntheticVideos.Video> videos, LoadProfile profile) {
+        this.baseUri = baseUri;
+        this.uploadBodies = videos.stream().map(OpenLoopLoadGenerator::multipart).toList();
+        this.profile = profile;
+    }
+
+    List<String> uploaded() {
+        return uploaded;
+    }
+
+    /**
+     * 执行预热和正式压测
+     *
+     * @param upload     上传统计
+     * @param extraction 后台提取统计，延迟从上传计划发出到提取结束
+     * @param download   下载统计
+     * @return 正式统计阶段的实际时长
+     */
+    Duration run(OperationStats upload, OperationStats extraction, OperationStats download) {
+        OperationStats warmupUpload = new OperationStats("warmup-upload");
+        OperationStats warmupExtraction = new OperationStats("warmup-extraction");
+        OperationStats warmupDownload = new OperationStats("warmup-download");
+        log.info("预热 {}，到达速率 {}/s", profile.warmup(), profile.arrivalRate());
+        drive(profile.warmup(), warmupUpload, warmupExtraction, warmupDownload);
+
+        log.info("压测 {}，到达速率 {}/s，下载占比 {}", profile.duration(), profile.arrivalRate(), profile.downloadRatio());
+        long start = System.nanoTime();
+        drive(profile.duration(), upload, extraction, download);
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    /**
+     * 在指定时长内按到达速率发出请求，并等待所有请求及其后台提取完成
+     */
+    private void drive(Duration duration, OperationStats upload, OperationStats extraction, OperationStats download) {
+        double meanIntervalNanos = 1_000_000_000.0 / profile.arrivalRate();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            long start = System.nanoTime();
+            long end = start + duration.toNanos();
+            long intended = start;
+            int sequence = 0;
+            while (intended < end) {
+                long delay = intended - System.nanoTime();
+                if (delay > 0) {
+                    LockSupport.parkNanos(delay);
+                }
+                long scheduledAt = intended;
+                if (!downloadable.isEmpty() && random.nextDouble() < profile.downloadRatio()) {
+                    String filename = downloadable.get(random.nextInt(downloadable.size()));
+                    executor.execute(() -> download(filename, scheduledAt, download));
+                } else {
+                    byte[] body = uploadBodies.get(sequence++ % uploadBodies.size());
+                    executor.execute(() -> upload(body, scheduledAt, upload, extraction));
+                }
+                intended += (long) (profile.poisson()
+                        ? -Math.log(1 - random.nextDouble()) * meanIntervalNanos
+                        : meanIntervalNanos);
+            }
+        }
+    }
+
+    private void upload(byte[] body, long scheduledAt, OperationStats stats, OperationStats extraction) {
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/api/video/upload"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        try {
+            HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            stats.record(response.statusCode(), elapsedMicros(scheduledAt));
+            if (response.statusCode() == 200) {
+                String filename = objectMapper.readTree(response.body()).path("data").path("filename").asText();
+                uploaded.add(filename);
+                awaitExtraction(filename, scheduledAt, extraction);
+            }
+        } catch (IOException e) {
+            stats.recordTransportError(elapsedMicros(scheduledAt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 上传接口只保存视频，轮询状态接口直到后台提取结束
+     * <p>
+     * 提取失败或结果中没有BGM后缀时记为提取失败，不加入下载列表
+     */
+    private void awaitExtraction(String filename, long scheduledAt, OperationStats stats) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/api/video/status/" + filename))
+                .timeout(REQUEST_TIMEOUT)
+                .GET()
+                .build();
+        long deadline = System.nanoTime() + REQUEST_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            Thread.sleep(STATUS_POLL_INTERVAL.toMillis());
+            JsonNode data;
+            try {
+                HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                if (response.statusCode() != 200) {
+                    // 并发限制等原因被拒绝，稍后重试
+                    continue;
+                }
+                data = objectMapper.readTree(response.body()).path("data");
+            } catch (IOException e) {
+                continue;
+            }
+            String status = data.path("status").asText();
+            if ("pending".equals(status)) {
+                continue;
+            }
+            JsonNode extension = data.path("extension");
+            if ("completed".equals(status) && extension.isTextual() && !extension.asText().isEmpty()) {
+                stats.record(200, elapsedMicros(scheduledAt));
+                downloadable.add(filename + "." + extension.asText());
+            } else {
+                stats.recordFailure(elapsedMicros(scheduledAt));
+            }
+            return;
+        }
+        // 超时仍未结束，同样记为提取失败
+        stats.recordFailure(elapsedMicros(scheduledAt));
+    }
+
+    private void download(String filename, long scheduledAt, OperationStats stats) {
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/api/video/download/" + filename))
+                .timeout(REQUEST_TIMEOUT)
+                .GET()
+                .build();
+        try {
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            stats.record(response.statusCode(), elapsedMicros(scheduledAt));
+        } catch (IOException e) {
+            stats.recordTransportError(elapsedMicros(scheduledAt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long elapsedMicros(long scheduledAt) {
+        return (System.nanoTime() - scheduledAt) / 1000;
+    }
+
+    private static byte[] multipart(SyntheticVideos.Video video) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(video.content().length + 256);
+        String header = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + video.filename() + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n";
+        body.writeBytes(header.getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(video.content());
+        body.writeBytes(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return body.toByteArray();
+    }
+
+    @Override
+    public void close() {
+        httpClient.close();
+    }
+}
@@ -0,0 +1,97 @@
+package com.yang.video.load;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单类请求（上传、下载或后台提取）的统计
+ */
+final class OperationStats {
+
+    private final String name;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private final Map<Integer, LongAdder> statusCounts = new ConcurrentHashMap<>();
+
+    /**
+     * 连接失败、超时等没有拿到响应的请求
+     */
+    private final LongAdder transportErrors = new LongAdder();
+
+    /**
+     * 拿到响应但处理失败的请求，例如BGM提取失败
+     */
+    private final LongAdder failures = new LongAdder();
+
+    OperationStats(String name) {
+        this.name = name;
+    }
+
+    String name() {
+        return name;
+    }
+
+    /**
+     * 记录一次响应
+     *
+     * @param status        HTTP 状态码
+     * @param latencyMicros 从计划发出时间算起的延迟
+     */
+    void record(int status, long latencyMicros) {
+        latency.record(latencyMicros);
+        statusCounts.computeIfAbsent(status, key -> new LongAdder()).increment();
+    }
+
+    void recordTransportError(long latencyMicros) {
+        latency.record(latencyMicros);
+        transportErrors.increment();
+    }
+
+    void recordFailure(long latencyMicros) {
+        latency.record(latencyMicros);
+        failures.increment();
+    }
+
+    LatencyHistogram latency() {
+        return latency;
+    }
+
+    long total() {
+        return latency.count();
+    }
+
+    long successes() {
+        long successes = 0;
+        for (Map.Entry<Integer, LongAdder> entry : statusCounts.entrySet()) {
+            if (entry.getKey() >= 200 && entry.getKey() < 300) {
+                successes += entry.getValue().sum();
+            }
+        }
+        return successes;
+    }
+
+    long transportErrors() {
+        return transportErrors.sum();
+    }
+
+    long failures() {
+        return failures.sum();
+    }
+
+    double errorRate() {
+        long total = total();
+        return total == 0 ? 0 : (double) (total - successes()) / total;
+    }
+
+    /**
+     * 按状态码统计的次数，503 来自并发限制，500 来自磁盘空间检测或处理异常
+     */
+    Map<Integer, Long> statusCounts() {
+        Map<Integer, Long> counts = new TreeMap<>();
+        statusCounts.forEach((status, count) -> counts.put(status, count.sum()));
+        return counts;
+    }
+}
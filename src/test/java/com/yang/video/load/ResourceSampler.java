@@ -0,0 +1,120 @@
+package com.yang.video.load;
+
+import com.sun.management.OperatingSystemMXBean;
+import com.sun.management.UnixOperatingSystemMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定期采样 CPU、文件句柄和 ffmpeg 子进程数量
+ * <p>
+ * 应用与压测运行在同一个 JVM 中，ffmpeg 进程都是当前进程的子孙进程。
+ * ffmpeg 的 CPU 消耗不计入 JVM 进程，因此同时采样整机 CPU 使用率
+ */
+final class ResourceSampler implements AutoCloseable {
+
+    private final OperatingSystemMXBean os =
+            (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "load-resource-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final long startCpuNanos;
+
+    private final long startWallNanos;
+
+    private double cpuLoadSum;
+
+    private double cpuLoadMax;
+
+    private double systemCpuLoadSum;
+
+    private double systemCpuLoadMax;
+
+    private int samples;
+
+    private long ffmpegMax;
+
+    private long fdMax;
+
+    ResourceSampler(long intervalMillis) {
+        this.startCpuNanos = os.getProcessCpuTime();
+        this.startWallNanos = System.nanoTime();
+        scheduler.scheduleAtFixedRate(this::sample, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void sample() {
+        double cpuLoad = os.getProcessCpuLoad();
+        if (cpuLoad >= 0) {
+            cpuLoadSum += cpuLoad;
+            cpuLoadMax = Math.max(cpuLoadMax, cpuLoad);
+            samples++;
+        }
+        double systemCpuLoad = os.getCpuLoad();
+        if (systemCpuLoad >= 0) {
+            systemCpuLoadSum += systemCpuLoad;
+            systemCpuLoadMax = Math.max(systemCpuLoadMax, systemCpuLoad);
+        }
+        ffmpegMax = Math.max(ffmpegMax, ffmpegProcessCount());
+        fdMax = Math.max(fdMax, openFileDescriptorCount());
+    }
+
+    /**
+     * JVM 进程（不含子进程）CPU 时间占墙钟时间的比例，按核数计，例如 2.0 表示平均占满两个核
+     */
+    synchronized double jvmCpuCores() {
+        long wallNanos = System.nanoTime() - startWallNanos;
+        return wallNanos == 0 ? 0 : (double) (os.getProcessCpuTime() - startCpuNanos) / wallNanos;
+    }
+
+    synchronized double averageCpuLoad() {
+        return samples == 0 ? 0 : cpuLoadSum / samples;
+    }
+
+    synchronized double maxCpuLoad() {
+        return cpuLoadMax;
+    }
+
+    synchronized double averageSystemCpuLoad() {
+        return samples == 0 ? 0 : systemCpuLoadSum / samples;
+    }
+
+    synchronized double maxSystemCpuLoad() {
+        return systemCpuLoadMax;
+    }
+
+    synchronized long maxFfmpegProcesses() {
+        return ffmpegMax;
+    }
+
+    synchronized long maxOpenFileDescriptors() {
+        return fdMax;
+    }
+
+    static long ffmpegProcessCount() {
+        return ProcessHandle.current().descendants()
+                .filter(process -> process.info().command().map(command -> command.endsWith("ffmpeg")).orElse(false))
+                .count();
+    }
+
+    /**
+     * 当前打开的文件句柄数，非 Unix 系统返回 -1
+     */
+    static long openFileDescriptorCount() {
+        return ManagementFactory.getOperatingSystemMXBean() instanceof UnixOperatingSystemMXBean unix
+                ? unix.getOpenFileDescriptorCount()
+                : -1;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        sample();
+    }
+}
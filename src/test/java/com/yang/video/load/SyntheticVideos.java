@@ -0,0 +1,76 @@
+package com.yang.video.load;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 使用 ffmpeg lavfi 测试源生成不同时长的合成视频
+ * <p>
+ * 每个时长生成 MP4（AAC，走进程内提取）和 AVI（AC-3，回退到 FFmpeg 转码）两种，覆盖两条提取路径
+ */
+final class SyntheticVideos {
+
+    /**
+     * 合成视频
+     *
+     * @param filename 上传时使用的文件名
+     * @param content  文件内容
+     */
+    record Video(String filename, byte[] content) {
+    }
+
+    private SyntheticVideos() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    static boolean ffmpegAvailable() {
+        try {
+            return new ProcessBuilder("ffmpeg", "-version")
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start()
+                    .waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 生成视频并读入内存，压测时直接复用字节数组，避免读盘影响结果
+     *
+     * @param directory 输出目录
+     * @param seconds   每个视频的时长（秒）
+     * @return 合成视频列表
+     */
+    static List<Video> generate(Path directory, int[] seconds) throws IOException, InterruptedException {
+        List<Video> videos = new ArrayList<>();
+        for (int duration : seconds) {
+            videos.add(generate(directory, duration, "mp4", "aac"));
+            videos.add(generate(directory, duration, "avi", "ac3"));
+        }
+        return videos;
+    }
+
+    private static Video generate(Path directory, int duration, String container, String audioCodec)
+            throws IOException, InterruptedException {
+        String filename = "synthetic_" + duration + "s." + container;
+        Path video = directory.resolve(filename);
+        Process process = new ProcessBuilder("ffmpeg", "-y", "-v", "error",
+                "-f", "lavfi", "-i", "testsrc=duration=" + duration + ":size=320x240:rate=25",
+                "-f", "lavfi", "-i", "sine=frequency=440:duration=" + duration,
+                "-c:v", "mpeg4", "-c:a", audioCodec, "-shortest", video.toString())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        if (process.waitFor() != 0) {
+            throw new IOException("ffmpeg failed to generate " + video);
+        }
+        return new Video(filename, Files.readAllBytes(video));
+    }
+}
@@ -0,0 +1,158 @@
+package com.yang.video.service.impl;
+
+import com.yang.video.config.FFmpegGovernorProperties;
+import com.yang.video.exception.ServiceException;
+import com.yang.video.util.FFmpegJobBudget;
+import com.yang.video.util.FFmpegStats;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.function.IntToDoubleFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FFmpegGovernorImplTests {
+
+    @Test
+    void rejectsJobsBeyondLimitAfterQueueTimeout() {
+        FFmpegGovernorProperties properties = new FFmpegGovernorProperties();
+        properties.setMaxJobs(1);
+        properties.setQueueTimeout(Duration.ofMillis(100));
+        FFmpegGovernorImpl governor = new FFmpegGovernorImpl(properties);
+
+        FFmpegJobBudget budget = governor.acquire();
+        assertEquals(1, budget.threads());
+        ServiceException exception = assertThrows(ServiceException.class, governor::acquire);
+        assertEquals(503, exception.getCode());
+
+        governor.release(budget, new FFmpegStats(10, 1, 1));
+        governor.release(governor.acquire(), null);
+    }
+
+    @Test
+    void returnsUnlimitedBudgetWhenDisabled() {
+        FFmpegGovernorProperties properties = new FFmpegGovernorProperties();
+        properties.setEnabled(false);
+        FFmpegGovernorImpl governor = new FFmpegGovernorImpl(properties);
+
+        assertSame(FFmpegJobBudget.UNLIMITED, governor.acquire());
+    }
+
+    @Test
+    void appliesMemoryLimitOnlyWhenSystemdScopeWorks() throws Exception {
+        FFmpegGovernorProperties properties = new FFmpegGovernorProperties();
+        properties.setMemoryMax("512M");
+        FFmpegGovernorImpl governor = new FFmpegGovernorImpl(properties, 4);
+
+        FFmpegJobBudget budget = governor.acquire();
+        governor.release(budget, null);
+
+        // 没有用户级 systemd 会话（如容器中）时不能把ffmpeg包装在 systemd-run 中，否则每个任务都会失败
+        boolean scopeWorks = run("systemd-run", "--user", "--scope", "--quiet", "-p", "MemoryMax=512M", "--", "true") == 0;
+        assertEquals(scopeWorks ? "512M" : null, budget.memoryMax());
+    }
+
+    @Test
+    void climbsWhileScoreImprovesAndStopsAtMaxThreads() {
+        FFmpegGovernorImpl governor = new FFmpegGovernorImpl(tuningProperties(0), 8);
+
+        // 线程越多效率越高：1 -> 2 -> 4 -> 8，候选值最多到CPU核数
+        assertEquals(2, runWindows(governor, 1, threads -> threads));
+        assertEquals(4, runWindows(governor, 1, threads -> threads));
+        assertEquals(8, runWindows(governor, 1, threads -> threads));
+        assertEquals(8, runWindows(governor, 3, threads -> threads));
+    }
+
+    @Test
+    void reversesWhenScoreGetsWorse() {
+        FFmpegGovernorImpl governor = new FFmpegGovernorImpl(tuningProperties(0), 8);
+
+        // 线程越多效率越低：尝试 2 后退回 1，之后不再向上探索
+        assertEquals(2, runWindows(governor, 1, threads -> 1.0 / threads));
+        assertEquals(1, runWindows(governor, 1, threads -> 1.0 / threads));
+        assertEquals(1, runWindows(governor, 3, threads -> 1.0 / threads));
+    }
+
+    @Test
+    void tunesOnlyAfterFullWindowOfCurrentThreadCount() {
+        FFmpegGovernorProperties properties = tuningProperties(0);
+        FFmpegGovernorImpl governor = new FFmpegGovernorImpl(properties, 8);
+
+        FFmpegJobBudget stale = governor.acquire();
+        for (int i = 0; i < properties.getTuneWindow() - 1; i++) {
+            runJob(governor, 1);
+        }
+        assertEquals(1, currentThreads(governor));
+        // 统计不完整的任务不计入窗口
+        FFmpegJobBudget budget = governor.acquire();
+        governor.release(budget, new FFmpegStats(10, Double.NaN, 1));
+        assertEquals(1, currentThreads(governor));
+
+        runJob(governor, 1);
+        assertEquals(2, currentThreads(governor));
+
+        // 调整前开始的任务按旧线程数执行，不计入新窗口
+        governor.release(stale, new FFmpegStats(10, 1, 1));
+        for (int i = 0; i < properties.getTuneWindow() - 1; i++) {
+            runJob(governor, 0.5);
+        }
+        assertEquals(2, currentThreads(governor));
+    }
+
+    @Test
+    void clampsInitialThreadsToCandidates() {
+        assertEquals(1, currentThreads(new FFmpegGovernorImpl(tuningProperties(0), 8)));
+        assertEquals(4, currentThreads(new FFmpegGovernorImpl(tuningProperties(5), 8)));
+        assertEquals(8, currentThreads(new FFmpegGovernorImpl(tuningProperties(64), 8)));
+        assertEquals(1, currentThreads(new FFmpegGovernorImpl(tuningProperties(64), 1)));
+    }
+
+    private static FFmpegGovernorProperties tuningProperties(int threadsPerJob) {
+        FFmpegGovernorProperties properties = new FFmpegGovernorProperties();
+        properties.setThreadsPerJob(threadsPerJob);
+        properties.setMaxJobs(100);
+        properties.setTuneWindow(4);
+        return properties;
+    }
+
+    /**
+     * 按当前线程数完成若干个评估窗口，得分（媒体秒/CPU秒）由线程数决定
+     *
+     * @return 之后分配的线程数
+     */
+    private static int runWindows(FFmpegGovernorImpl governor, int windows, IntToDoubleFunction score) {
+        for (int window = 0; window < windows; window++) {
+            int threads = currentThreads(governor);
+            for (int i = 0; i < 4; i++) {
+                runJob(governor, score.applyAsDouble(threads));
+            }
+        }
+        return currentThreads(governor);
+    }
+
+    private static int currentThreads(FFmpegGovernorImpl governor) {
+        FFmpegJobBudget budget = governor.acquire();
+        governor.release(budget, null);
+        return budget.threads();
+    }
+
+    private static int run(String... command) throws InterruptedException {
+        try {
+            Process process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            return process.waitFor();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static void runJob(FFmpegGovernorImpl governor, double score) {
+        FFmpegJobBudget budget = governor.acquire();
+        governor.release(budget, new FFmpegStats(10 * score, 10, 1));
+    }
+}
@@ -0,0 +1,119 @@
+package com.yang.video.service.impl;
+
+import com.yang.video.dto.FileMetadata;
+import com.yang.video.util.FileStorageLayout;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileIndexServiceImplTests {
+
+    private static final String VIDEO = "2025-09-29_772f9446-a9f9-4508-9f78-aa0e64222d81.mp4";
+
+    private static final String BGM = "2025-09-29_772f9446-a9f9-4508-9f78-aa0e64222d81.mp3";
+
+    @TempDir
+    Path root;
+
+    @Test
+    void migratesFlatDateDirectoryAndRebuildsIndex() throws Exception {
+        Path dateDirectory = Files.createDirectories(root.resolve("2025-09-29"));
+        Files.writeString(dateDirectory.resolve(VIDEO), "video");
+        Files.writeString(dateDirectory.resolve(BGM), "bgm");
+        Files.writeString(root.resolve("legacy.mp3"), "legacy");
+
+        FileIndexServiceImpl index = new FileIndexServiceImpl(root);
+        index.rebuild();
+
+        FileMetadata bgm = index.lookup(BGM);
+        assertNotNull(bgm);
+        assertEquals(FileStorageLayout.resolve(root, BGM), bgm.path());
+        assertEquals(dateDirectory.resolve(FileStorageLayout.shard(BGM)), bgm.path().getParent());
+        assertEquals(3, bgm.size());
+        assertEquals("audio/mpeg", bgm.contentType());
+        // 同一次上传的文件位于同一分片
+        assertEquals(bgm.path().getParent(), index.lookup(VIDEO).path().getParent());
+        assertTrue(Files.exists(bgm.path()));
+        assertFalse(Files.exists(dateDirectory.resolve(BGM)));
+        assertNotNull(index.lookup("legacy.mp3"));
+        assertEquals(3, index.list().size());
+    }
+
+    @Test
+    void skipsTemporaryFiles() throws Exception {
+        Path shard = Files.createDirectories(FileStorageLayout.resolve(root, BGM).getParent());
+        Files.writeString(shard.resolve(BGM), "bgm");
+        Files.writeString(shard.resolve(BGM + FileStorageLayout.TEMPORARY_SUFFIX), "partial");
+
+        FileIndexServiceImpl index = new FileIndexServiceImpl(root);
+        index.rebuild();
+
+        assertNull(index.lookup(BGM + FileStorageLayout.TEMPORARY_SUFFIX));
+        assertEquals(shard.resolve(BGM), index.lookup(BGM).path());
+        assertEquals(1, index.list().size());
+    }
+
+    @Test
+    void skipsEntriesThatCannotBeRead() throws Exception {
+        Path shard = Files.createDirectories(FileStorageLayout.resolve(root, BGM).getParent());
+        Files.writeString(shard.resolve(BGM), "bgm");
+        // 扫描时目标已不存在的条目，读取属性会失败
+        String vanished = BGM.replace(".mp3", ".aac");
+        Files.createSymbolicLink(FileStorageLayout.resolve(root, vanished), root.resolve("missing"));
+
+        FileIndexServiceImpl index = new FileIndexServiceImpl(root);
+        index.rebuild();
+
+        assertNull(index.lookup(vanished));
+        assertEquals(shard.resolve(BGM), index.lookup(BGM).path());
+        assertEquals(1, index.list().size());
+    }
+
+    @Test
+    void tracksWritesAndDeletes() throws Exception {
+        FileIndexServiceImpl index = new FileIndexServiceImpl(root);
+        index.rebuild();
+
+        Path file = index.resolve(BGM);
+        Files.writeString(file, "bgm");
+        index.register(file);
+        long contentHash = index.contentHash(BGM);
+        assertNotEquals(0, contentHash);
+        assertEquals(contentHash, index.lookup(BGM).contentHash());
+
+        assertTrue(index.delete(BGM));
+        assertNull(index.lookup(BGM));
+        assertFalse(Files.exists(file));
+        assertFalse(index.delete(BGM));
+    }
+
+    @Test
+    void tableMatchesHashMapUnderRandomInsertsAndRemovals() {
+        FileIndexTable table = new FileIndexTable(0);
+        Map<String, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            String name = "2025-09-29_" + random.nextInt(5_000) + ".mp3";
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(name) != null, table.remove(name));
+            } else {
+                expected.put(name, (long) i);
+                table.put(name, i, i, 0, (byte) 0);
+            }
+        }
+        assertEquals(expected.size(), table.size());
+        expected.forEach((name, value) -> assertEquals(value, table.fileSize(table.find(name))));
+    }
+}
@@ -0,0 +1,212 @@
+package com.yang.video.service.impl;
+
+import com.yang.video.config.FFmpegGovernorProperties;
+import com.yang.video.dto.ClipResponse;
+import com.yang.video.dto.FileMetadata;
+import com.yang.video.dto.TimeRange;
+import com.yang.video.dto.UploadResponse;
+import com.yang.video.dto.WebhookEvent;
+import com.yang.video.exception.ServiceException;
+import com.yang.video.service.WebhookService;
+import com.yang.video.util.FileStorageLayout;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 使用 ffmpeg 生成测试视频，校验后台提取与回调、BGM片段的提取、缓存和临时文件处理
+ */
+class VideoServiceImplTests {
+
+    private static final String VIDEO = "2025-09-29_772f9446-a9f9-4508-9f78-aa0e64222d81.mp4";
+
+    private static final String SAME_CONTENT_VIDEO = "2025-09-30_0b6c3f0e-5d41-4c8e-9a55-3d1f2f7c9e10.mp4";
+
+    @TempDir
+    Path root;
+
+    private FileIndexServiceImpl fileIndexService;
+
+    private VideoServiceImpl videoService;
+
+    private final BlockingQueue<WebhookEvent> events = new LinkedBlockingQueue<>();
+
+    @BeforeAll
+    static void requireFfmpeg() throws InterruptedException {
+        assumeTrue(run("ffmpeg", "-version") == 0, "ffmpeg 不可用，跳过测试");
+        assumeTrue(run("ffmpeg", "-v", "error", "-f", "lavfi", "-i", "sine=duration=0.1",
+                "-c:a", "libmp3lame", "-f", "null", "-") == 0, "ffmpeg 未编译 libmp3lame，跳过测试");
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        fileIndexService = new FileIndexServiceImpl(root);
+        fileIndexService.rebuild();
+        FFmpegGovernorProperties properties = new FFmpegGovernorProperties();
+        properties.setEnabled(false);
+        videoService = new VideoServiceImpl(new RecordingWebhookService(), new FFmpegGovernorImpl(properties), fileIndexService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        videoService.stop();
+    }
+
+    @Test
+    void uploadReturnsPendingAndNotifiesWhenExtractionCompletes() throws Exception {
+        Path video = root.resolve("source.mp4");
+        assertEquals(0, generate(video));
+        MockMultipartFile file = new MockMultipartFile("file", "source.mp4", "video/mp4", Files.readAllBytes(video));
+
+        UploadResponse pending = videoService.upload(file, "http://203.0.113.10/hook", List.of());
+
+        // 上传立即返回，结果通过回调和状态接口获取
+        assertEquals(UploadResponse.STATUS_PENDING, pending.getStatus());
+        assertNull(pending.getExtension());
+        WebhookEvent event = events.poll(60, TimeUnit.SECONDS);
+        assertNotNull(event);
+        assertEquals(WebhookEvent.BGM_COMPLETED, event.getType());
+        assertEquals(pending.getFilename(), event.getFilename());
+        assertEquals("aac", event.getExtension());
+        UploadResponse status = videoService.uploadStatus(pending.getFilename());
+        assertEquals(UploadResponse.STATUS_COMPLETED, status.getStatus());
+        assertEquals("aac", status.getExtension());
+        assertNotNull(fileIndexService.lookup(pending.getFilename() + ".aac"));
+    }
+
+    @Test
+    void uploadReportsFailureThroughCallbackAndStatus() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "broken.mp4", "video/mp4", "not a video".getBytes());
+
+        UploadResponse pending = videoService.upload(file, "http://203.0.113.10/hook", List.of());
+
+        WebhookEvent event = events.poll(60, TimeUnit.SECONDS);
+        assertNotNull(event);
+        assertEquals(WebhookEvent.BGM_FAILED, event.getType());
+        UploadResponse status = videoService.uploadStatus(pending.getFilename());
+        assertEquals(UploadResponse.STATUS_FAILED, status.getStatus());
+        assertNull(status.getExtension());
+    }
+
+    @Test
+    void extractsClipOnceAndReusesItForSameContent() throws Exception {
+        Path video = generateVideo(VIDEO);
+        List<TimeRange> ranges = List.of(new TimeRange(0.5, 1.0));
+
+        ClipResponse first = videoService.extractClips(stem(VIDEO), ranges).get(0);
+        assertFalse(first.getCached());
+        FileMetadata clip = fileIndexService.lookup(first.getFilename());
+        assertNotNull(clip);
+        assertTrue(clip.size() > 0);
+        assertEquals(root.resolve(FileStorageLayout.CLIP_DIRECTORY), clip.path().getParent().getParent());
+        // 临时文件已原子移动为正式文件
+        assertEquals(List.of(clip.path()), listFiles(clip.path().getParent()));
+
+        ClipResponse second = videoService.extractClips(stem(VIDEO), ranges).get(0);
+        assertTrue(second.getCached());
+        assertEquals(first.getFilename(), second.getFilename());
+        assertEquals(clip.lastModified(), Files.getLastModifiedTime(clip.path()).toMillis());
+
+        // 同一视频在另一天重新上传，缓存键只与内容有关，直接复用
+        Path copy = fileIndexService.resolve(SAME_CONTENT_VIDEO);
+        Files.copy(video, copy);
+        fileIndexService.register(copy);
+        ClipResponse reused = videoService.extractClips(stem(SAME_CONTENT_VIDEO), ranges).get(0);
+        assertTrue(reused.getCached());
+        assertEquals(first.getFilename(), reused.getFilename());
+    }
+
+    @Test
+    void rejectsRangeBeyondEndOfVideo() throws Exception {
+        generateVideo(VIDEO);
+
+        ServiceException e = assertThrows(ServiceException.class,
+                () -> videoService.extractClips(stem(VIDEO), List.of(new TimeRange(10, 1))));
+
+        assertEquals(400, e.getCode());
+        Path clipDirectory = root.resolve(FileStorageLayout.CLIP_DIRECTORY);
+        try (Stream<Path> files = Files.walk(clipDirectory)) {
+            // 不留下临时文件，也不登记空片段
+            assertTrue(files.noneMatch(Files::isRegularFile));
+        }
+        assertTrue(fileIndexService.list().stream().noneMatch(file -> file.filename().startsWith(FileStorageLayout.CLIP_PREFIX)));
+    }
+
+    @Test
+    void rejectsUnknownVideo() {
+        ServiceException e = assertThrows(ServiceException.class,
+                () -> videoService.extractClips(stem(VIDEO), List.of(new TimeRange(0, 1))));
+
+        assertEquals(404, e.getCode());
+        assertNull(fileIndexService.lookup(VIDEO));
+    }
+
+    private Path generateVideo(String name) throws Exception {
+        Path video = fileIndexService.resolve(name);
+        assertEquals(0, generate(video));
+        fileIndexService.register(video);
+        return video;
+    }
+
+    private static int generate(Path video) throws InterruptedException {
+        return run("ffmpeg", "-y", "-v", "error",
+                "-f", "lavfi", "-i", "testsrc=duration=3:size=160x120:rate=25",
+                "-f", "lavfi", "-i", "sine=frequency=440:duration=3",
+                "-c:v", "mpeg4", "-c:a", "aac", "-shortest", video.toString());
+    }
+
+    private static String stem(String filename) {
+        return filename.substring(0, filename.lastIndexOf('.'));
+    }
+
+    private static List<Path> listFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.toList();
+        }
+    }
+
+    private static int run(String... command) throws InterruptedException {
+        try {
+            Process process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            return process.waitFor();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private final class RecordingWebhookService implements WebhookService {
+        @Override
+        public void publish(String callbackUrl, WebhookEvent event) {
+            // 只记录事件，不发送回调
+            events.add(event);
+        }
+
+        @Override
+        public boolean isValidCallbackUrl(String callbackUrl) {
+            return true;
+        }
+    }
+}
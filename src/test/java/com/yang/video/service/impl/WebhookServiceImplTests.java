@@ -0,0 +1,219 @@
+package com.yang.video.service.impl;
+
+import cn.hutool.crypto.SecureUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import com.yang.video.config.WebhookProperties;
+import com.yang.video.dto.WebhookEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 使用本地 HTTP 服务模拟回调接收方，验证批量合并、签名、重试和死信
+ */
+class WebhookServiceImplTests {
+
+    private static final String SECRET = "test-secret";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final BlockingQueue<ReceivedRequest> received = new LinkedBlockingQueue<>();
+
+    /**
+     * 依次返回的状态码，用完后返回200
+     */
+    private final BlockingQueue<Integer> statuses = new LinkedBlockingQueue<>();
+
+    private final AtomicInteger requestCount = new AtomicInteger();
+
+    @TempDir
+    Path deadLetterDirectory;
+
+    private HttpServer server;
+
+    private WebhookServiceImpl webhookService;
+
+    private record ReceivedRequest(String body, String timestamp, String signature) {
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/hook", exchange -> {
+            requestCount.incrementAndGet();
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            received.add(new ReceivedRequest(body,
+                    exchange.getRequestHeaders().getFirst(WebhookServiceImpl.TIMESTAMP_HEADER),
+                    exchange.getRequestHeaders().getFirst(WebhookServiceImpl.SIGNATURE_HEADER)));
+            Integer status = statuses.poll();
+            exchange.sendResponseHeaders(status == null ? 200 : status, -1);
+            exchange.close();
+        });
+        server.start();
+
+        WebhookProperties properties = new WebhookProperties();
+        properties.setSecret(SECRET);
+        properties.setBatchSize(10);
+        properties.setBatchDelay(Duration.ofMillis(200));
+        properties.setMaxAttempts(3);
+        properties.setInitialBackoff(Duration.ofMillis(50));
+        properties.setMaxBackoff(Duration.ofMillis(200));
+        properties.setTimeout(Duration.ofSeconds(2));
+        properties.setDeadLetterDirectory(deadLetterDirectory.toString());
+        // 回调接收方运行在本机
+        properties.setAllowPrivateNetworks(true);
+        webhookService = new WebhookServiceImpl(properties, objectMapper);
+        webhookService.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        webhookService.stop();
+        server.stop(0);
+    }
+
+    @Test
+    void batchesEventsForSameEndpointAndSignsBody() throws Exception {
+        webhookService.publish(callbackUrl(), WebhookEvent.completed("a", "/api/video/download", "aac"));
+        webhookService.publish(callbackUrl(), WebhookEvent.failed("b", "BGM提取失败"));
+
+        ReceivedRequest request = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(request);
+        JsonNode events = objectMapper.readTree(request.body());
+        assertEquals(2, events.size());
+        assertEquals(WebhookEvent.BGM_COMPLETED, events.get(0).get("type").asText());
+        assertEquals(WebhookEvent.BGM_FAILED, events.get(1).get("type").asText());
+
+        String expected = SecureUtil.hmacSha256(SECRET.getBytes(StandardCharsets.UTF_8))
+                .digestHex(request.timestamp() + "." + request.body(), StandardCharsets.UTF_8);
+        assertEquals("sha256=" + expected, request.signature());
+        assertNull(received.poll(500, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void retriesServerErrorsWithBackoff() throws Exception {
+        statuses.addAll(List.of(500, 503));
+        webhookService.publish(callbackUrl(), WebhookEvent.completed("a", "/api/video/download", "aac"));
+
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(received.poll(5, TimeUnit.SECONDS));
+        }
+        assertNull(received.poll(500, TimeUnit.MILLISECONDS));
+        assertEquals(3, requestCount.get());
+        assertEquals(0, deadLetterCount());
+    }
+
+    @Test
+    void movesExhaustedDeliveriesToDeadLetter() throws Exception {
+        statuses.addAll(List.of(500, 500, 500));
+        webhookService.publish(callbackUrl(), WebhookEvent.completed("a", "/api/video/download", "aac"));
+
+        assertTrue(waitForDeadLetter());
+        assertEquals(3, requestCount.get());
+    }
+
+    @Test
+    void doesNotRetryClientErrors() throws Exception {
+        statuses.add(400);
+        webhookService.publish(callbackUrl(), WebhookEvent.completed("a", "/api/video/download", "aac"));
+
+        assertTrue(waitForDeadLetter());
+        assertEquals(1, requestCount.get());
+    }
+
+    @Test
+    void acceptsOnlyHttpCallbackUrls() {
+        // 使用IP地址，避免测试依赖DNS解析
+        assertTrue(webhookService.isValidCallbackUrl("https://203.0.113.10/hook"));
+        assertTrue(webhookService.isValidCallbackUrl(callbackUrl()));
+        assertFalse(webhookService.isValidCallbackUrl("file:///etc/passwd"));
+        assertFalse(webhookService.isValidCallbackUrl("not a url"));
+    }
+
+    @Test
+    void rejectsInternalAddressesByDefault() {
+        WebhookServiceImpl service = new WebhookServiceImpl(new WebhookProperties(), objectMapper);
+
+        assertFalse(service.isValidCallbackUrl(callbackUrl()));
+        assertFalse(service.isValidCallbackUrl("http://localhost/hook"));
+        assertFalse(service.isValidCallbackUrl("http://169.254.169.254/latest/meta-data"));
+        assertFalse(service.isValidCallbackUrl("http://10.0.0.1/hook"));
+        assertFalse(service.isValidCallbackUrl("http://192.168.1.1/hook"));
+        assertFalse(service.isValidCallbackUrl("http://100.64.0.1/hook"));
+        assertFalse(service.isValidCallbackUrl("http://[::1]/hook"));
+        assertFalse(service.isValidCallbackUrl("http://[fd00::1]/hook"));
+        assertTrue(service.isValidCallbackUrl("http://93.184.216.34/hook"));
+    }
+
+    @Test
+    void deadLettersPendingRetriesOnStop() throws Exception {
+        WebhookProperties properties = new WebhookProperties();
+        properties.setBatchDelay(Duration.ofMillis(10));
+        properties.setInitialBackoff(Duration.ofMinutes(1));
+        properties.setTimeout(Duration.ofSeconds(2));
+        properties.setDeadLetterDirectory(deadLetterDirectory.toString());
+        properties.setAllowPrivateNetworks(true);
+        WebhookServiceImpl service = new WebhookServiceImpl(properties, objectMapper);
+        service.start();
+
+        statuses.add(500);
+        service.publish(callbackUrl(), WebhookEvent.completed("a", "/api/video/download", "aac"));
+        assertNotNull(received.poll(5, TimeUnit.SECONDS));
+        // 等待失败响应处理完成，重试已进入等待
+        Thread.sleep(200);
+
+        long start = System.currentTimeMillis();
+        service.stop();
+        assertTrue(System.currentTimeMillis() - start < 2000);
+        assertEquals(1, deadLetterCount());
+        assertEquals(1, requestCount.get());
+    }
+
+    private String callbackUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/hook";
+    }
+
+    private boolean waitForDeadLetter() throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            if (deadLetterCount() > 0) {
+                return true;
+            }
+            Thread.sleep(50);
+        }
+        return false;
+    }
+
+    private long deadLetterCount() throws IOException {
+        try (var files = Files.list(deadLetterDirectory)) {
+            return files.flatMap(file -> {
+                try {
+                    return Files.readAllLines(file).stream();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }).count();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.yang.video.task;
+
+import com.yang.video.dto.FileMetadata;
+import com.yang.video.service.FileIndexService;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 校验BGM片段缓存按保留期通过索引淘汰，上传文件不受影响
+ */
+class FileCleanupSchedulerTests {
+
+    private static final String OLD_CLIP = "clip_0123456789abcdef.500-1000.q0.mp3";
+
+    private static final String NEW_CLIP = "clip_fedcba9876543210.500-1000.q0.mp3";
+
+    private static final String OLD_UPLOAD = "2025-09-29_772f9446-a9f9-4508-9f78-aa0e64222d81.mp3";
+
+    private final InMemoryFileIndexService fileIndexService = new InMemoryFileIndexService();
+
+    private final FileCleanupScheduler scheduler = new FileCleanupScheduler(fileIndexService);
+
+    @Test
+    void evictsOnlyClipsOlderThanCutoff() {
+        Instant now = Instant.now();
+        fileIndexService.add(OLD_CLIP, now.minus(Duration.ofDays(8)));
+        fileIndexService.add(NEW_CLIP, now.minus(Duration.ofDays(1)));
+        // 日期目录中的上传文件不属于片段缓存
+        fileIndexService.add(OLD_UPLOAD, now.minus(Duration.ofDays(8)));
+
+        scheduler.evictExpiredClips(now.minus(Duration.ofDays(7)));
+
+        assertEquals(List.of(OLD_CLIP), fileIndexService.deleted);
+        assertEquals(2, fileIndexService.list().size());
+    }
+
+    private static final class InMemoryFileIndexService implements FileIndexService {
+
+        private final Map<String, FileMetadata> files = new ConcurrentHashMap<>();
+
+        private final List<String> deleted = new ArrayList<>();
+
+        void add(String filename, Instant modified) {
+            files.put(filename, new FileMetadata(filename, Path.of(filename), 3, modified.toEpochMilli(), "audio/mpeg", 0));
+        }
+
+        @Override
+        public FileMetadata lookup(String filename) {
+            return files.get(filename);
+        }
+
+        @Override
+        public Path resolve(String filename) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileMetadata register(Path file) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileMetadata register(Path file, byte[] sha256) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long contentHash(String filename) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean delete(String filename) {
+            // 只记录通过索引的删除
+            deleted.add(filename);
+            return files.remove(filename) != null;
+        }
+
+        @Override
+        public List<FileMetadata> list() {
+            return List.copyOf(files.values());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.yang.video.util.demux;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 使用 ffmpeg 生成测试视频，将进程内提取结果与 ffmpeg 流拷贝（-c:a copy）的结果逐字节比对
+ */
+class AudioDemuxUtilsTests {
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    static void requireFfmpeg() throws InterruptedException {
+        assumeTrue(run("ffmpeg", "-version") == 0, "ffmpeg 不可用，跳过测试");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"mp4", "mkv"})
+    void extractsAacTrackIdenticalToFfmpegCopy(String container) throws Exception {
+        Path video = generateVideo("video." + container, "aac");
+        Path expected = tempDir.resolve("expected.aac");
+        assertEquals(0, ffmpeg("-i", video.toString(), "-map", "0:a:0", "-c:a", "copy", "-f", "adts", expected.toString()));
+
+        File actual = AudioDemuxUtils.extractAudio(video.toFile(), tempDir.resolve("actual").toString());
+
+        assertNotNull(actual);
+        assertEquals("actual.aac", actual.getName());
+        assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(actual.toPath()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"mp4", "mkv"})
+    void extractsMp3TrackIdenticalToFfmpegCopy(String container) throws Exception {
+        Path video = tempDir.resolve("video." + container);
+        assumeTrue(generate(video, "libmp3lame") == 0, "ffmpeg 未编译 libmp3lame，跳过测试");
+        Path expected = tempDir.resolve("expected.mp3");
+        assertEquals(0, ffmpeg("-i", video.toString(), "-map", "0:a:0", "-c:a", "copy",
+                "-id3v2_version", "0", "-write_xing", "0", "-f", "mp3", expected.toString()));
+
+        File actual = AudioDemuxUtils.extractAudio(video.toFile(), tempDir.resolve("actual").toString());
+
+        assertNotNull(actual);
+        assertEquals("actual.mp3", actual.getName());
+        assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(actual.toPath()));
+    }
+
+    @Test
+    void returnsNullForUnsupportedCodec() throws Exception {
+        Path video = generateVideo("video.mkv", "flac");
+
+        assertNull(AudioDemuxUtils.extractAudio(video.toFile(), tempDir.resolve("actual").toString()));
+        assertEquals(1, countFiles());
+    }
+
+    @Test
+    void returnsNullForVideoWithoutAudio() throws Exception {
+        Path video = tempDir.resolve("video.mp4");
+        assertEquals(0, ffmpeg("-f", "lavfi", "-i", "testsrc=duration=2:size=160x120:rate=25",
+                "-c:v", "mpeg4", video.toString()));
+
+        assertNull(AudioDemuxUtils.extractAudio(video.toFile(), tempDir.resolve("actual").toString()));
+    }
+
+    @Test
+    void returnsNullForCorruptedFile() throws Exception {
+        Path video = generateVideo("video.mp4", "aac");
+        byte[] bytes = Files.readAllBytes(video);
+        Path truncated = tempDir.resolve("truncated.mp4");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length / 2));
+
+        // moov 可能位于文件头或文件尾，截断后要么无法解析，要么帧表越界，均应回退
+        assertNull(AudioDemuxUtils.extractAudio(truncated.toFile(), tempDir.resolve("actual").toString()));
+    }
+
+    private Path generateVideo(String name, String audioCodec) throws Exception {
+        Path video = tempDir.resolve(name);
+        assertEquals(0, generate(video, audioCodec));
+        return video;
+    }
+
+    private int generate(Path video, String audioCodec) throws Exception {
+        return ffmpeg("-f", "lavfi", "-i", "testsrc=duration=3:size=160x120:rate=25",
+                "-f", "lavfi", "-i", "sine=frequency=440:duration=3",
+                "-c:v", "mpeg4", "-c:a", audioCodec, "-shortest", video.toString());
+    }
+
+    private long countFiles() throws IOException {
+        try (var files = Files.list(tempDir)) {
+            return files.count();
+        }
+    }
+
+    private static int ffmpeg(String... args) throws InterruptedException {
+        List<String> command = new ArrayList<>(List.of("ffmpeg", "-y", "-v", "error"));
+        command.addAll(List.of(args));
+        return run(command.toArray(new String[0]));
+    }
+
+    private static int run(String... command) throws InterruptedException {
+        try {
+            Process process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            return process.waitFor();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+}
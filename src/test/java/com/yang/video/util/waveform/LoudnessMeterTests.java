@@ -0,0 +1,80 @@
+package com.yang.video.util.waveform;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 使用已知电平的 1kHz 正弦波校验综合响度：BS.1770 中 1kHz 处 K 加权增益与 -0.691 的偏移相互抵消
+ */
+class LoudnessMeterTests {
+
+    private static final int SAMPLE_RATE = 48000;
+
+    @Test
+    void measuresStereoSineAtItsLevel() {
+        LoudnessMeter meter = new LoudnessMeter(SAMPLE_RATE, 2);
+
+        feedSine(meter, 2, -20.0, 5.0);
+
+        // 两个声道各 -20 dBFS 的正弦波，综合响度为 -20 LUFS
+        assertEquals(-20.0, meter.integratedLoudness(), 0.05);
+    }
+
+    @Test
+    void measuresFullScaleMonoSine() {
+        LoudnessMeter meter = new LoudnessMeter(SAMPLE_RATE, 1);
+
+        feedSine(meter, 1, 0.0, 5.0);
+
+        // 满幅正弦波的均方值为 1/2，即 -3.01 LUFS
+        assertEquals(-3.01, meter.integratedLoudness(), 0.05);
+    }
+
+    @Test
+    void gatesSilenceAndQuietPassages() {
+        LoudnessMeter meter = new LoudnessMeter(SAMPLE_RATE, 2);
+
+        feedSilence(meter, 2, 5.0);
+        feedSine(meter, 2, -20.0, 5.0);
+        // 比主体低 20 LU 的部分低于相对门限，不参与计算
+        feedSine(meter, 2, -40.0, 5.0);
+        feedSilence(meter, 2, 5.0);
+
+        // 只有跨越 -20/-40 分界的几个 400ms 块会拉低结果；不做门限时结果约为 -26 LUFS
+        assertEquals(-20.0, meter.integratedLoudness(), 0.3);
+    }
+
+    @Test
+    void returnsNegativeInfinityForSilenceOrShortInput() {
+        LoudnessMeter silence = new LoudnessMeter(SAMPLE_RATE, 2);
+        feedSilence(silence, 2, 5.0);
+        assertEquals(Float.NEGATIVE_INFINITY, silence.integratedLoudness());
+
+        LoudnessMeter shortTone = new LoudnessMeter(SAMPLE_RATE, 2);
+        feedSine(shortTone, 2, -20.0, 0.3);
+        assertEquals(Float.NEGATIVE_INFINITY, shortTone.integratedLoudness());
+    }
+
+    private static void feedSine(LoudnessMeter meter, int channels, double dbfs, double seconds) {
+        double amplitude = Math.pow(10, dbfs / 20);
+        int frames = (int) (SAMPLE_RATE * seconds);
+        for (int i = 0; i < frames; i++) {
+            double sample = amplitude * Math.sin(2 * Math.PI * 1000 * i / SAMPLE_RATE);
+            for (int channel = 0; channel < channels; channel++) {
+                meter.accept(channel, sample);
+            }
+            meter.endFrame();
+        }
+    }
+
+    private static void feedSilence(LoudnessMeter meter, int channels, double seconds) {
+        int frames = (int) (SAMPLE_RATE * seconds);
+        for (int i = 0; i < frames; i++) {
+            for (int channel = 0; channel < channels; channel++) {
+                meter.accept(channel, 0);
+            }
+            meter.endFrame();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.yang.video.util.waveform;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WaveformBuilderTests {
+
+    private static final int SAMPLE_RATE = 48000;
+
+    private static final int CHANNELS = 2;
+
+    /**
+     * 不是任何级别点长度的整数倍，每一级最后都有一个未满的点
+     */
+    private static final int FRAMES = 100_000;
+
+    /**
+     * 半幅（-6.02 dBFS）正弦波
+     */
+    private static final int AMPLITUDE = 16384;
+
+    @Test
+    void writesHeaderAndLevelTable() {
+        byte[] summary = build(pcm(FRAMES), FRAMES * CHANNELS * 2);
+        ByteBuffer in = ByteBuffer.wrap(summary).order(ByteOrder.LITTLE_ENDIAN);
+
+        byte[] magic = new byte[4];
+        in.get(magic);
+        assertEquals("VTWF", new String(magic, StandardCharsets.US_ASCII));
+        assertEquals(WaveformBuilder.VERSION, in.getShort());
+        assertEquals(CHANNELS, in.getShort());
+        assertEquals(SAMPLE_RATE, in.getInt());
+        assertEquals(FRAMES, in.getLong());
+        // 两个声道各 -6.02 dBFS，综合响度约 -6.02 LUFS
+        assertEquals(-6.02, in.getFloat(), 0.1);
+        assertEquals(-6.02, in.getFloat(), 0.01);
+        assertEquals(WaveformBuilder.LEVEL_COUNT, in.getShort());
+        assertEquals(0, in.getShort());
+
+        long offset = 32 + 16L * WaveformBuilder.LEVEL_COUNT;
+        int framesPerBin = WaveformBuilder.BASE_FRAMES_PER_BIN;
+        for (int level = 0; level < WaveformBuilder.LEVEL_COUNT; level++) {
+            int bins = Math.ceilDiv(FRAMES, framesPerBin);
+            assertEquals(framesPerBin, in.getInt());
+            assertEquals(bins, in.getInt());
+            assertEquals(offset, in.getLong());
+            offset += (long) bins * WaveformBuilder.BYTES_PER_BIN;
+            framesPerBin *= WaveformBuilder.LEVEL_FACTOR;
+        }
+        assertEquals(offset, summary.length);
+    }
+
+    @Test
+    void writesMinMaxAndRmsPerBin() {
+        byte[] summary = build(pcm(FRAMES), FRAMES * CHANNELS * 2);
+        ByteBuffer in = ByteBuffer.wrap(summary).order(ByteOrder.LITTLE_ENDIAN);
+
+        // 每个点包含 10 个完整周期，最小值、最大值为幅度的高8位，RMS 为 幅度/√2 右移7位
+        int dataOffset = (int) in.getLong(32 + 8);
+        assertEquals(-64, summary[dataOffset]);
+        assertEquals(64, summary[dataOffset + 1]);
+        assertEquals(Math.round(AMPLITUDE / Math.sqrt(2)) >> 7, summary[dataOffset + 2] & 0xFF, 1);
+    }
+
+    @Test
+    void resultDoesNotDependOnChunking() {
+        byte[] pcm = pcm(FRAMES);
+        byte[] whole = build(pcm, pcm.length);
+
+        WaveformBuilder builder = new WaveformBuilder(SAMPLE_RATE, CHANNELS);
+        int frameBytes = CHANNELS * 2;
+        int chunk = 997 * frameBytes;
+        for (int offset = 0; offset < pcm.length; offset += chunk) {
+            int length = Math.min(chunk, pcm.length - offset);
+            byte[] part = new byte[length];
+            System.arraycopy(pcm, offset, part, 0, length);
+            builder.accept(part, length);
+        }
+
+        assertArrayEquals(whole, builder.build());
+    }
+
+    private static byte[] build(byte[] pcm, int length) {
+        WaveformBuilder builder = new WaveformBuilder(SAMPLE_RATE, CHANNELS);
+        builder.accept(pcm, length);
+        return builder.build();
+    }
+
+    /**
+     * 生成 1kHz 立体声正弦波，16位小端交错排列
+     */
+    private static byte[] pcm(int frames) {
+        ByteBuffer out = ByteBuffer.allocate(frames * CHANNELS * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < frames; i++) {
+            short sample = (short) Math.round(AMPLITUDE * Math.sin(2 * Math.PI * 1000 * i / SAMPLE_RATE));
+            for (int channel = 0; channel < CHANNELS; channel++) {
+                out.putShort(sample);
+            }
+        }
+        return out.array();
+    }
+}